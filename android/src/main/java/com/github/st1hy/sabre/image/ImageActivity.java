@@ -98,6 +98,10 @@ public class ImageActivity extends BaseActivity implements AndroidFragmentApplic
         return imageUriFromIntent;
     }
 
+    public Lazy<DaoSession> getDaoSession() {
+        return daoSession;
+    }
+
     @Override
     public void exit() {
         finish();
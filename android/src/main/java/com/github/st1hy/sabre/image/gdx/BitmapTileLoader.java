@@ -0,0 +1,29 @@
+package com.github.st1hy.sabre.image.gdx;
+
+import android.graphics.Bitmap;
+import android.opengl.GLES20;
+import android.opengl.GLUtils;
+import android.support.annotation.NonNull;
+
+import com.badlogic.gdx.graphics.Texture;
+import com.github.st1hy.coregdx.TiledTexture;
+
+/**
+ * Uploads parts of the bitmap into background tiles.
+ */
+public class BitmapTileLoader implements TiledTexture.TileLoader {
+    private final Bitmap bitmap;
+
+    public BitmapTileLoader(@NonNull Bitmap bitmap) {
+        this.bitmap = bitmap;
+    }
+
+    @Override
+    public void load(Texture tile, int srcX, int srcY, int width, int height) {
+        Bitmap tileBitmap = Bitmap.createBitmap(bitmap, srcX, srcY, width, height);
+        GLES20.glBindTexture(GLES20.GL_TEXTURE_2D, tile.getTextureObjectHandle());
+        GLUtils.texImage2D(GLES20.GL_TEXTURE_2D, 0, tileBitmap, 0);
+        GLES20.glBindTexture(GLES20.GL_TEXTURE_2D, 0);
+        if (tileBitmap != bitmap) tileBitmap.recycle();
+    }
+}
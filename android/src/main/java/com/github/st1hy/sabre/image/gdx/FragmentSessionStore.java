@@ -0,0 +1,187 @@
+package com.github.st1hy.sabre.image.gdx;
+
+import android.net.Uri;
+import android.support.annotation.NonNull;
+
+import com.badlogic.gdx.utils.Array;
+import com.github.st1hy.sabre.dao.DaoSession;
+import com.github.st1hy.sabre.dao.OpenImageUtils;
+import com.github.st1hy.sabre.dao.OpenedImage;
+import com.github.st1hy.sabre.dao.SessionFragment;
+import com.github.st1hy.sabre.dao.SessionFragmentDao;
+import com.github.st1hy.sabre.dao.SessionFragmentUtils;
+import com.github.st1hy.sabre.libgdx.model.FragmentChange;
+import com.github.st1hy.sabre.libgdx.model.ImageFragmentModel;
+import com.github.st1hy.sabre.libgdx.model.OnSessionChangedListener;
+import com.github.st1hy.sabre.libgdx.model.ScreenModel;
+import com.github.st1hy.sabre.libgdx.model.ScreenModelCodec;
+
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import dagger.Lazy;
+import rx.Observable;
+import rx.Subscriber;
+import rx.schedulers.Schedulers;
+import timber.log.Timber;
+
+/**
+ * Keeps editing session of an image in database, one row per fragment.
+ * <p>
+ * Changed fragments are received already encoded on GL thread and written on single background thread shared
+ * by all stores, so session loaded by a new store sees everything written by the stores before it. Only rows of
+ * fragments which changed are inserted, updated or deleted, fragments which only moved in drawing order have
+ * just their position updated. Changes are written only after the session was loaded
+ * by this store, so rows of the image are never replaced by a session that did not start from them.
+ */
+public class FragmentSessionStore implements OnSessionChangedListener {
+    /**
+     * Lives as long as the process and is never shut down, stores come and go with the screens.
+     * Its thread is a daemon so it never keeps the process alive, every write is a single transaction
+     * so write interrupted by the process exit leaves previous rows intact.
+     */
+    private static final ExecutorService WRITER = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(@NonNull Runnable runnable) {
+            Thread thread = new Thread(runnable, "session-writer");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    private final Lazy<DaoSession> daoSession;
+    private final Uri uri;
+    private volatile boolean isClosed = false;
+    /**
+     * Accessed on writer thread only.
+     */
+    private final Map<ImageFragmentModel, Long> rowIds = new IdentityHashMap<>();
+    private final Map<ImageFragmentModel, FragmentChange> pending = new IdentityHashMap<>();
+    private boolean isLoaded = false;
+
+    public FragmentSessionStore(@NonNull Lazy<DaoSession> daoSession, @NonNull Uri uri) {
+        this.daoSession = daoSession;
+        this.uri = uri;
+    }
+
+    /**
+     * @return session stored for the image, empty if there is none. Rows which cannot be decoded are skipped.
+     */
+    public Observable<ScreenModel> load() {
+        return Observable.create(new Observable.OnSubscribe<ScreenModel>() {
+            @Override
+            public void call(Subscriber<? super ScreenModel> subscriber) {
+                try {
+                    ScreenModel screenModel = loadNow();
+                    if (!subscriber.isUnsubscribed()) {
+                        subscriber.onNext(screenModel);
+                        subscriber.onCompleted();
+                    }
+                } catch (RuntimeException e) {
+                    subscriber.onError(e);
+                }
+            }
+        }).subscribeOn(Schedulers.from(WRITER));
+    }
+
+    private ScreenModel loadNow() {
+        DaoSession session = daoSession.get();
+        Array<ImageFragmentModel> models = new Array<>();
+        rowIds.clear();
+        OpenedImage image = OpenImageUtils.getImage(session.getOpenedImageDao(), uri);
+        if (image != null) {
+            List<SessionFragment> rows = SessionFragmentUtils.getFragments(session.getSessionFragmentDao(), image.getId());
+            for (SessionFragment row : rows) {
+                try {
+                    ImageFragmentModel model = ScreenModelCodec.decodeFragment(row.getData());
+                    rowIds.put(model, row.getId());
+                    models.add(model);
+                } catch (IllegalArgumentException e) {
+                    Timber.w(e, "Skipping invalid session fragment %d", row.getId());
+                }
+            }
+        }
+        isLoaded = true;
+        if (!pending.isEmpty()) write();
+        ScreenModel screenModel = new ScreenModel();
+        screenModel.setFragmentModels(models);
+        return screenModel;
+    }
+
+    @Override
+    public void onSessionChanged(final Array<FragmentChange> changes) {
+        if (isClosed) {
+            Timber.w("Dropping %d session changes of closed store", changes.size);
+            return;
+        }
+        WRITER.execute(new Runnable() {
+            @Override
+            public void run() {
+                for (FragmentChange change : changes) {
+                    FragmentChange previous = pending.get(change.getModel());
+                    pending.put(change.getModel(), previous != null ? previous.merge(change) : change);
+                }
+                write();
+            }
+        });
+    }
+
+    /**
+     * Image is added to database in parallel with opening it, pending changes wait for it.
+     * When writing fails changes stay pending and row bookkeeping is restored, so next save retries them.
+     * Changes received before the session was loaded stay pending too, they are written once it is loaded.
+     */
+    private void write() {
+        if (!isLoaded) return;
+        DaoSession session = daoSession.get();
+        OpenedImage image = OpenImageUtils.getImage(session.getOpenedImageDao(), uri);
+        if (image == null) return;
+        Map<ImageFragmentModel, Long> savedRowIds = new IdentityHashMap<>(rowIds);
+        try {
+            writeInTx(session, image.getId());
+            pending.clear();
+        } catch (RuntimeException e) {
+            Timber.e(e, "Saving editing session failed");
+            rowIds.clear();
+            rowIds.putAll(savedRowIds);
+        }
+    }
+
+    private void writeInTx(final DaoSession session, final long imageId) {
+        session.runInTx(new Runnable() {
+            @Override
+            public void run() {
+                SessionFragmentDao dao = session.getSessionFragmentDao();
+                for (FragmentChange change : pending.values()) {
+                    if (change.isRemoved()) {
+                        Long rowId = rowIds.remove(change.getModel());
+                        if (rowId != null) dao.deleteByKey(rowId);
+                        continue;
+                    }
+                    Long rowId = rowIds.get(change.getModel());
+                    if (change.isMoved()) {
+                        if (rowId != null) SessionFragmentUtils.updatePosition(dao, rowId, change.getPosition());
+                        continue;
+                    }
+                    SessionFragment row = new SessionFragment(rowId, imageId, change.getPosition(), change.getData());
+                    if (rowId == null) {
+                        rowIds.put(change.getModel(), dao.insert(row));
+                    } else {
+                        dao.update(row);
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Changes already received are still written, changes received after close are dropped.
+     */
+    public void close() {
+        isClosed = true;
+    }
+}
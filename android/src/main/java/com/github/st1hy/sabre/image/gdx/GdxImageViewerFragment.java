@@ -4,21 +4,19 @@ import android.app.ActionBar;
 import android.graphics.Bitmap;
 import android.graphics.Color;
 import android.net.Uri;
-import android.opengl.GLES20;
-import android.opengl.GLUtils;
 import android.os.Bundle;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
+import android.util.DisplayMetrics;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
 
 import com.badlogic.gdx.backends.android.AndroidApplicationConfiguration;
 import com.badlogic.gdx.backends.android.AndroidFragmentApplication;
-import com.badlogic.gdx.graphics.Pixmap;
-import com.badlogic.gdx.graphics.Texture;
 import com.github.st1hy.core.utils.MissingInterfaceException;
 import com.github.st1hy.core.utils.Utils;
+import com.github.st1hy.coregdx.TiledTexture;
 import com.github.st1hy.gesturedetector.Config;
 import com.github.st1hy.sabre.BuildConfig;
 import com.github.st1hy.sabre.R;
@@ -27,32 +25,38 @@ import com.github.st1hy.sabre.image.gdx.touch.ImageTouchController;
 import com.github.st1hy.sabre.libgdx.ImageGdxCore;
 import com.github.st1hy.sabre.libgdx.ImageScreen;
 import com.github.st1hy.sabre.libgdx.ScreenContext;
-import com.squareup.picasso.Picasso;
+import com.github.st1hy.sabre.libgdx.model.ScreenModel;
+
+import java.util.concurrent.atomic.AtomicReference;
 
 import rx.Observable;
 import rx.android.schedulers.AndroidSchedulers;
 import rx.concurrency.GdxScheduler;
+import rx.functions.Action0;
 import rx.functions.Action1;
 import rx.functions.Func1;
+import rx.functions.Func2;
 import rx.picasso.BitmapLoadedEvent;
 import rx.picasso.RxTarget;
 import rx.picasso.TargetEvent;
 import rx.subscriptions.CompositeSubscription;
+import rx.subscriptions.Subscriptions;
 import timber.log.Timber;
 
 public class GdxImageViewerFragment extends AndroidFragmentApplication  {
-    private static final String TAG = GdxImageViewerFragment.class.getSimpleName();
-
     private ImageGdxCore imageGdxCore;
     private GdxViewHolder viewHolder;
     private ImageTouchController imageTouchController;
 
-    private static final String STORE_SCREEN_CONTEXT_MODEL = "Screen_model";
-    private String screenContextJson = null;
-    private ScreenContext screenContext;
+    private FragmentSessionStore sessionStore;
 
     private CompositeSubscription subscriptions = new CompositeSubscription();
+    /**
+     * Loading and displaying of the current image, part of subscriptions.
+     */
+    private CompositeSubscription imageSubscriptions;
     private RxTarget rxTarget;
+    private SampledImageSource imageSource;
 
     @Override
     public void onCreate(Bundle savedInstanceState) {
@@ -62,6 +66,7 @@ public class GdxImageViewerFragment extends AndroidFragmentApplication  {
         imageTouchController = new ImageTouchController(getActivity());
         if (BuildConfig.DEBUG) setLogLevel(LOG_DEBUG);
         rxTarget = RxTarget.get();
+        imageSource = new SampledImageSource(getActivity());
     }
 
     private void sanityCheck() {
@@ -85,23 +90,12 @@ public class GdxImageViewerFragment extends AndroidFragmentApplication  {
         if (actionBar != null) {
             actionBar.hide();
         }
-        if (savedInstanceState != null) {
-            screenContextJson = savedInstanceState.getString(STORE_SCREEN_CONTEXT_MODEL);
-        }
         Uri uri = activity.getImageUriFromIntent();
         if (uri != null) {
             setImageURI(uri);
         }
     }
 
-    @Override
-    public void onSaveInstanceState(Bundle outState) {
-        super.onSaveInstanceState(outState);
-        if (screenContext != null) {
-            outState.putString(STORE_SCREEN_CONTEXT_MODEL, screenContext.toJson());
-        }
-    }
-
     @Nullable
     @Override
     public View onCreateView(LayoutInflater inflater, ViewGroup container, Bundle savedInstanceState) {
@@ -122,8 +116,6 @@ public class GdxImageViewerFragment extends AndroidFragmentApplication  {
     public void onDestroyView() {
         super.onDestroyView();
         imageTouchController.invalidate();
-        Picasso.with(getActivity())
-                .cancelTag(TAG);
     }
 
     private AndroidApplicationConfiguration initConfig() {
@@ -137,43 +129,97 @@ public class GdxImageViewerFragment extends AndroidFragmentApplication  {
         return config;
     }
 
+    /**
+     * Editing session is always restored from database, also when fragment is recreated, so it is not kept in
+     * saved instance state. Changes of the previous session were passed to the same writer thread before,
+     * so they are loaded too.
+     * Image is shown first downsampled to the surface size, refined bitmap replaces background of the same screen.
+     * Pixels are kept in textures, so every bitmap is recycled as soon as it is uploaded on GL thread.
+     * Bitmap waiting for upload is unclaimed, it is recycled instead when newer bitmap arrives before it
+     * was claimed by GL thread, e.g. preview loaded before the session, or when loading is stopped.
+     * Loading of previous image is stopped and its late bitmaps are ignored.
+     */
     public void setImageURI(@NonNull final Uri uri) {
+        ImageActivity activity = (ImageActivity) getActivity();
+        if (imageSubscriptions != null) subscriptions.remove(imageSubscriptions);
+        imageSubscriptions = new CompositeSubscription();
+        subscriptions.add(imageSubscriptions);
+        if (sessionStore != null) sessionStore.close();
+        sessionStore = new FragmentSessionStore(activity.getDaoSession(), uri);
+        Observable<ScreenModel> storedSession = sessionStore.load();
+        final AtomicReference<ImageScreen> currentScreen = new AtomicReference<>();
+        final AtomicReference<Bitmap> unclaimedBitmap = new AtomicReference<>();
         Observable<TargetEvent> observableTarget = rxTarget.toObservable();
-        subscriptions.add(observableTarget.filter(
+        Observable<TargetEvent> loadedTarget = observableTarget.filter(
                 new Func1<TargetEvent, Boolean>() {
                     @Override
                     public Boolean call(TargetEvent event) {
-                        return event.getType() == TargetEvent.BitmapEventType.LOADED;
+                        return event.getType() == TargetEvent.BitmapEventType.LOADED &&
+                                uri.equals(((BitmapLoadedEvent) event.getEvent()).getUri());
+                    }
+                })
+                .doOnNext(new Action1<TargetEvent>() {
+                    @Override
+                    public void call(TargetEvent event) {
+                        recycle(unclaimedBitmap.getAndSet(((BitmapLoadedEvent) event.getEvent()).getBitmap()));
+                    }
+                });
+        imageSubscriptions.add(Subscriptions.create(new Action0() {
+            @Override
+            public void call() {
+                recycle(unclaimedBitmap.getAndSet(null));
+            }
+        }));
+        imageSubscriptions.add(Observable.combineLatest(loadedTarget, storedSession,
+                new Func2<TargetEvent, ScreenModel, LoadedImage>() {
+                    @Override
+                    public LoadedImage call(TargetEvent event, ScreenModel screenModel) {
+                        return new LoadedImage((BitmapLoadedEvent) event.getEvent(), screenModel);
                     }
                 })
                 .observeOn(GdxScheduler.get())
-                .map(new Func1<TargetEvent, ImageScreen>() {
+                .filter(new Func1<LoadedImage, Boolean>() {
+                    @Override
+                    public Boolean call(LoadedImage loadedImage) {
+                        return unclaimedBitmap.compareAndSet(loadedImage.bitmapLoaded.getBitmap(), null);
+                    }
+                })
+                .map(new Func1<LoadedImage, ImageScreen>() {
                     @Override
-                    public ImageScreen call(TargetEvent event) {
-                        BitmapLoadedEvent bitmapLoaded = (BitmapLoadedEvent) event.getEvent();
-                        Bitmap bitmap = bitmapLoaded.getBitmap();
+                    public ImageScreen call(LoadedImage loadedImage) {
+                        Bitmap bitmap = loadedImage.bitmapLoaded.getBitmap();
                         if (Config.DEBUG) {
-                            Timber.v("Loading texture");
+                            Timber.v("Loading texture %dx%d", bitmap.getWidth(), bitmap.getHeight());
+                        }
+                        TiledTexture tex = TiledTexture.create(loadedImage.bitmapLoaded.getSourceWidth(),
+                                loadedImage.bitmapLoaded.getSourceHeight(), bitmap.getWidth(), bitmap.getHeight(),
+                                new BitmapTileLoader(bitmap));
+                        bitmap.recycle();
+                        ImageScreen screen = currentScreen.get();
+                        if (screen != null) {
+                            screen.setBackground(tex);
+                            return screen;
                         }
-                        Texture tex = new Texture(bitmap.getWidth(), bitmap.getHeight(), Pixmap.Format.RGBA8888);
-                        GLES20.glBindTexture(GLES20.GL_TEXTURE_2D, tex.getTextureObjectHandle());
-                        GLUtils.texImage2D(GLES20.GL_TEXTURE_2D, 0, bitmap, 0);
-                        GLES20.glBindTexture(GLES20.GL_TEXTURE_2D, 0);
-                        screenContext = ScreenContext.createScreenContext(tex, screenContextJson);
-                        return imageGdxCore.setImage(screenContext);
+                        ScreenContext screenContext = ScreenContext.createScreenContext(tex, loadedImage.storedSession);
+                        screenContext.markSaved();
+                        screenContext.setOnSessionChangedListener(sessionStore);
+                        screen = imageGdxCore.setImage(screenContext);
+                        currentScreen.set(screen);
+                        return screen;
                     }
                 })
+                .distinctUntilChanged()
                 .observeOn(AndroidSchedulers.mainThread())
                 .subscribe(new Action1<ImageScreen>() {
                     @Override
                     public void call(ImageScreen imageScreen) {
-                        imageTouchController.setDispatch(imageScreen,
+                        imageTouchController.setDispatch(imageGdxCore.getTransformationInput(),
                                 imageScreen.getPathDrawingListener(),
                                 imageScreen.getImageFragmentSelector());
                         onLoadingFinished();
                     }
                 }));
-        subscriptions.add(observableTarget.observeOn(AndroidSchedulers.mainThread())
+        imageSubscriptions.add(observableTarget.observeOn(AndroidSchedulers.mainThread())
                 .subscribe(new Action1<TargetEvent>() {
                     @Override
                     public void call(TargetEvent event) {
@@ -191,16 +237,22 @@ public class GdxImageViewerFragment extends AndroidFragmentApplication  {
                         }
                     }
                 }));
-        Picasso.with(getActivity())
-                .load(uri)
-                .tag(TAG)
-                .into(rxTarget);
+        DisplayMetrics metrics = getResources().getDisplayMetrics();
+        View surface = viewHolder.getGlSurface();
+        int surfaceWidth = surface.getWidth() > 0 ? surface.getWidth() : metrics.widthPixels;
+        int surfaceHeight = surface.getHeight() > 0 ? surface.getHeight() : metrics.heightPixels;
+        imageSubscriptions.add(imageSource.load(uri, surfaceWidth, surfaceHeight, rxTarget));
+    }
+
+    private static void recycle(@Nullable Bitmap bitmap) {
+        if (bitmap != null) bitmap.recycle();
     }
 
     @Override
     public void onDestroy() {
         super.onDestroy();
         imageTouchController.onDestroy();
+        if (sessionStore != null) sessionStore.close();
     }
 
     private void onLoadingStarted() {
@@ -212,4 +264,14 @@ public class GdxImageViewerFragment extends AndroidFragmentApplication  {
         viewHolder.getLoadingProgressBar().setVisibility(View.GONE);
         viewHolder.getGlSurfaceContainer().setVisibility(View.VISIBLE);
     }
+
+    private static class LoadedImage {
+        private final BitmapLoadedEvent bitmapLoaded;
+        private final ScreenModel storedSession;
+
+        private LoadedImage(BitmapLoadedEvent bitmapLoaded, ScreenModel storedSession) {
+            this.bitmapLoaded = bitmapLoaded;
+            this.storedSession = storedSession;
+        }
+    }
 }
@@ -0,0 +1,175 @@
+package com.github.st1hy.sabre.image.gdx;
+
+import android.app.ActivityManager;
+import android.content.ContentResolver;
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.net.Uri;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.squareup.picasso.Picasso;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+
+import rx.Observable;
+import rx.Subscriber;
+import rx.Subscription;
+import rx.functions.Action1;
+import rx.functions.Actions;
+import rx.picasso.RxTarget;
+import rx.schedulers.Schedulers;
+import timber.log.Timber;
+
+/**
+ * Decodes image with sample size matched to the screen and memory of the device, results are passed to {@link RxTarget}.
+ * <p>
+ * Image dimensions are read first. Preview is decoded with the largest power of two sample size which still
+ * covers the surface when image is fit to it, so the image is shown quickly. Then image is decoded again
+ * with the smallest sample size fitting the memory budget derived from device memory class and passed as another
+ * loaded bitmap. Both bitmaps report size of the source image and its uri, so image coordinates stay the same when
+ * refined bitmap replaces the preview and bitmaps of previously loaded image can be told apart.
+ */
+public class SampledImageSource {
+    /**
+     * Full resolution bitmap may take one quarter of the heap the application gets, as reported by
+     * {@link ActivityManager#getMemoryClass()}. Preview and the tile copies made while uploading it are alive
+     * at the same time, and the rest of the heap is left for the editing session and export.
+     */
+    private static final int HEAP_PARTS_PER_BITMAP = 4;
+    private static final long BYTES_PER_MEGABYTE = 1024L * 1024L;
+    private static final int BYTES_PER_PIXEL = 4;
+
+    private final ContentResolver contentResolver;
+    private final long memoryBudget;
+
+    public SampledImageSource(@NonNull Context context) {
+        contentResolver = context.getContentResolver();
+        ActivityManager activityManager = (ActivityManager) context.getSystemService(Context.ACTIVITY_SERVICE);
+        memoryBudget = activityManager.getMemoryClass() * BYTES_PER_MEGABYTE / HEAP_PARTS_PER_BITMAP;
+    }
+
+    /**
+     * Decodes image on io thread. Unsubscribing stops decoding before the next bitmap.
+     * Any failure before the first bitmap was loaded, including runtime exceptions such as missing permission
+     * to read the uri, is passed to {@link RxTarget#onBitmapFailed}.
+     *
+     * @param surfaceWidth  width of the surface image is displayed on
+     * @param surfaceHeight height of the surface image is displayed on
+     */
+    public Subscription load(@NonNull final Uri uri, final int surfaceWidth, final int surfaceHeight,
+                             @NonNull final RxTarget target) {
+        return Observable.create(new Observable.OnSubscribe<Void>() {
+            @Override
+            public void call(Subscriber<? super Void> subscriber) {
+                target.onPrepareLoad(null);
+                decode(uri, surfaceWidth, surfaceHeight, target, subscriber);
+                subscriber.onCompleted();
+            }
+        }).subscribeOn(Schedulers.io()).subscribe(Actions.empty(), new Action1<Throwable>() {
+            @Override
+            public void call(Throwable throwable) {
+                Timber.e(throwable, "Loading image failed");
+                target.onBitmapFailed(null);
+            }
+        });
+    }
+
+    private void decode(Uri uri, int surfaceWidth, int surfaceHeight, RxTarget target, Subscriber<?> subscriber) {
+        boolean isPreviewLoaded = false;
+        try {
+            BitmapFactory.Options bounds = readBounds(uri);
+            int width = bounds.outWidth, height = bounds.outHeight;
+            if (width <= 0 || height <= 0) throw new IOException("Cannot read image size: " + uri);
+            int fullSampleSize = getMemorySampleSize(width, height);
+            int previewSampleSize = Math.max(fullSampleSize, getSurfaceSampleSize(width, height, surfaceWidth, surfaceHeight));
+            Bitmap preview = decode(uri, previewSampleSize);
+            if (preview == null) throw new IOException("Cannot decode image: " + uri);
+            if (subscriber.isUnsubscribed()) {
+                preview.recycle();
+                return;
+            }
+            target.onBitmapLoaded(preview, Picasso.LoadedFrom.DISK, width, height, uri);
+            isPreviewLoaded = true;
+            if (previewSampleSize == fullSampleSize) return;
+            Bitmap refined = decode(uri, fullSampleSize);
+            if (refined == null) return;
+            if (subscriber.isUnsubscribed()) {
+                refined.recycle();
+            } else {
+                target.onBitmapLoaded(refined, Picasso.LoadedFrom.DISK, width, height, uri);
+            }
+        } catch (IOException | RuntimeException | OutOfMemoryError e) {
+            if (isPreviewLoaded) {
+                Timber.w(e, "Keeping image preview, refining it failed");
+            } else {
+                Timber.e(e, "Loading image failed");
+                target.onBitmapFailed(null);
+            }
+        }
+    }
+
+    /**
+     * @return smallest power of two sample size which keeps decoded bitmap within memory budget
+     */
+    private int getMemorySampleSize(int width, int height) {
+        int sampleSize = 1;
+        while ((long) divideCeil(width, sampleSize) * divideCeil(height, sampleSize) * BYTES_PER_PIXEL > memoryBudget) {
+            sampleSize *= 2;
+        }
+        return sampleSize;
+    }
+
+    /**
+     * @return largest power of two sample size which still has at least one pixel per surface pixel
+     * when image is fit to the surface
+     */
+    private static int getSurfaceSampleSize(int width, int height, int surfaceWidth, int surfaceHeight) {
+        if (surfaceWidth <= 0 || surfaceHeight <= 0) return 1;
+        float fitScale = Math.min((float) surfaceWidth / width, (float) surfaceHeight / height);
+        int sampleSize = 1;
+        while (sampleSize * 2 * fitScale <= 1f) {
+            sampleSize *= 2;
+        }
+        return sampleSize;
+    }
+
+    private static int divideCeil(int value, int divisor) {
+        return (value + divisor - 1) / divisor;
+    }
+
+    private BitmapFactory.Options readBounds(Uri uri) throws IOException {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        InputStream stream = open(uri);
+        try {
+            BitmapFactory.decodeStream(stream, null, options);
+        } finally {
+            stream.close();
+        }
+        return options;
+    }
+
+    @Nullable
+    private Bitmap decode(Uri uri, int sampleSize) throws IOException {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inSampleSize = sampleSize;
+        options.inPreferredConfig = Bitmap.Config.ARGB_8888;
+        InputStream stream = open(uri);
+        try {
+            return BitmapFactory.decodeStream(stream, null, options);
+        } finally {
+            stream.close();
+        }
+    }
+
+    @NonNull
+    private InputStream open(Uri uri) throws IOException {
+        InputStream stream = contentResolver.openInputStream(uri);
+        if (stream == null) throw new FileNotFoundException(uri.toString());
+        return stream;
+    }
+}
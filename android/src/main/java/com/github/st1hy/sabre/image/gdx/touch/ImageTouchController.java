@@ -33,6 +33,10 @@ import rx.android.schedulers.AndroidSchedulers;
 import rx.functions.Action1;
 
 public class ImageTouchController extends SimpleGestureListener implements GestureDetector {
+    /**
+     * Gestures are reported in OpenGL screen coordinates, with y axis pointing up.
+     */
+    private static final boolean IS_OPEN_GL_COORDINATES = true;
     private final AndroidToLibGdxMatrixAdapter adapter;
     private final PathGestureDetector pathGestureDetector;
     private final SelectorOnTouchListener<GestureDetector> delegate;
@@ -45,6 +49,8 @@ public class ImageTouchController extends SimpleGestureListener implements Gestu
         this.options = setupOptions(context);
         adapter = new AndroidToLibGdxMatrixAdapter();
         pathGestureDetector = new PathGestureDetector(options);
+        pathGestureDetector.setOpenGlCoordinates(IS_OPEN_GL_COORDINATES);
+        pathGestureDetector.setHistoricalCapture(true);
         selectElementPredicate = new ModePredicate(UiMode.CUT_ELEMENT);
         delegate = buildSelector();
         uiModeSubscribtion = UiMode.toObservable()
@@ -90,7 +96,7 @@ public class ImageTouchController extends SimpleGestureListener implements Gestu
         for (Options.Event event : Options.Event.values()) {
             options.setEnabled(event, false);
         }
-        options.setFlag(Options.Flag.MATRIX_OPEN_GL_COMPATIBILITY, true);
+        options.setFlag(Options.Flag.MATRIX_OPEN_GL_COMPATIBILITY, IS_OPEN_GL_COORDINATES);
         options.setEnabled(Options.Event.TRANSLATE, true);
         options.setEnabled(Options.Event.CLICK, true);
 //        options.setEnabled(Options.Event.DOUBLE_CLICK, true);
@@ -123,7 +129,20 @@ public class ImageTouchController extends SimpleGestureListener implements Gestu
 
     @Override
     public boolean onTouch(View v, MotionEvent event) {
-        return delegate.onTouch(v, event);
+        pathGestureDetector.setMotionEvent(event);
+        try {
+            return delegate.onTouch(v, event);
+        } finally {
+            pathGestureDetector.setMotionEvent(null);
+        }
+    }
+
+    /**
+     * @param isHistoricalCapture if true all touch samples are used to draw a path, batched per touch event.
+     *                            Enabled by default.
+     */
+    public void setHistoricalPathCapture(boolean isHistoricalCapture) {
+        pathGestureDetector.setHistoricalCapture(isHistoricalCapture);
     }
 
     @Override
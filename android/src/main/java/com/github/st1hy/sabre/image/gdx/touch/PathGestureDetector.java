@@ -3,6 +3,7 @@ package com.github.st1hy.sabre.image.gdx.touch;
 import android.graphics.PointF;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
+import android.view.MotionEvent;
 
 import com.badlogic.gdx.utils.FloatArray;
 import com.github.st1hy.coregdx.OnPathChangedListener;
@@ -14,14 +15,32 @@ import com.github.st1hy.gesturedetector.TranslationDetector;
 
 /**
  * Creates {@link FloatArray} from touch events.
+ * <p>
+ * By default only the newest sample of every event is passed, one call per point.
+ * In historical capture mode, which has to be enabled, all pointer samples batched by the system
+ * into single {@link MotionEvent} are collected and passed to the listener with one call per event.
+ * In both modes path starts only after the pointer moved further than translation start threshold.
  */
 public class PathGestureDetector implements TranslationDetector.Listener {
+    /**
+     * Batched samples closer than this distance in pixels to previous sample are skipped.
+     */
+    private static final float MIN_SAMPLE_DISTANCE = 0.5f;
     private final float minimalDistanceBetweenPoint;
     private OnPathChangedListener listener;
     private TouchEventState state = TouchEventState.ENDED;
     private int pathSize = 0;
     private float previousX, previousY, x, y;
 
+    private boolean isHistoricalCapture = false;
+    /**
+     * -1 if translation is reported with y axis pointing the opposite way than {@link MotionEvent} y axis.
+     */
+    private float eventYDirection = 1f;
+    private MotionEvent motionEvent;
+    private final FloatArray batch = new FloatArray();
+    private float startX, startY;
+
     public PathGestureDetector(@NonNull Options options, @Nullable OnPathChangedListener listener) {
         this.listener = listener;
         minimalDistanceBetweenPoint = options.get(Options.Constant.TRANSLATION_START_THRESHOLD);
@@ -38,8 +57,33 @@ public class PathGestureDetector implements TranslationDetector.Listener {
         pathSize = 0;
     }
 
+    public void setHistoricalCapture(boolean isHistoricalCapture) {
+        this.isHistoricalCapture = isHistoricalCapture;
+    }
+
+    /**
+     * @param isOpenGlCoordinates the same value as {@link Options.Flag#MATRIX_OPEN_GL_COMPATIBILITY} flag
+     *                            of the detector reporting translation, historical samples are converted from
+     *                            {@link MotionEvent} coordinates the same way as the translation
+     */
+    public void setOpenGlCoordinates(boolean isOpenGlCoordinates) {
+        eventYDirection = isOpenGlCoordinates ? -1f : 1f;
+    }
+
+    /**
+     * Touch event currently dispatched to translation detector. Its historical samples are read
+     * when translation is reported. Set to null after dispatch.
+     */
+    public void setMotionEvent(@Nullable MotionEvent motionEvent) {
+        this.motionEvent = motionEvent;
+    }
+
     @Override
     public void onTranslate(GestureEventState state, PointF startPoint, float x, float y, float _dx, float _dy, double _distance) {
+        if (isHistoricalCapture) {
+            onTranslateBatched(state, startPoint.x + x, startPoint.y + y);
+            return;
+        }
         boolean newPointsAdded = state == GestureEventState.STARTED ||
                 pathSize > 0 && movedMinimalDistance(x,y);
         if (newPointsAdded) {
@@ -84,4 +128,59 @@ public class PathGestureDetector implements TranslationDetector.Listener {
         if (listener != null) listener.onPathChanged(state, x, y, previousX, previousY);
     }
 
+    private void onTranslateBatched(GestureEventState gestureState, float pointX, float pointY) {
+        batch.clear();
+        if (gestureState == GestureEventState.STARTED) {
+            pathSize = 0;
+            state = TouchEventState.ENDED;
+            startX = pointX;
+            startY = pointY;
+        }
+        if (state == TouchEventState.ENDED) {
+            if (gestureState == GestureEventState.ENDED
+                    || GeometryUtils.distance(pointX, pointY, startX, startY) <= minimalDistanceBetweenPoint) return;
+            state = TouchEventState.STARTED;
+            addSample(startX, startY);
+        } else {
+            state = TouchEventState.IN_PROGRESS;
+            MotionEvent event = motionEvent;
+            if (event != null && event.getPointerCount() == 1) addHistoricalSamples(event, pointX, pointY);
+        }
+        addSample(pointX, pointY);
+        if (gestureState == GestureEventState.ENDED) {
+            state = TouchEventState.ENDED;
+            notifyAboutBatch();
+            pathSize = 0;
+        } else if (batch.size > 0) {
+            notifyAboutBatch();
+        }
+    }
+
+    /**
+     * Historical samples are given in view coordinates, they are moved into translation coordinates
+     * by offset between newest sample and reported translation point. Historical samples are accepted only
+     * once the path started, so movement below translation start threshold never starts a path.
+     */
+    private void addHistoricalSamples(MotionEvent event, float pointX, float pointY) {
+        float eventX = event.getX(0), eventY = event.getY(0);
+        int historySize = event.getHistorySize();
+        for (int h = 0; h < historySize; ++h) {
+            addSample(pointX + event.getHistoricalX(0, h) - eventX,
+                    pointY + eventYDirection * (event.getHistoricalY(0, h) - eventY));
+        }
+    }
+
+    private void addSample(float sampleX, float sampleY) {
+        if (pathSize > 0 && GeometryUtils.distance(sampleX, sampleY, x, y) < MIN_SAMPLE_DISTANCE) return;
+        x = sampleX;
+        y = sampleY;
+        pathSize++;
+        batch.add(sampleX);
+        batch.add(sampleY);
+    }
+
+    private void notifyAboutBatch() {
+        if (listener != null) listener.onPathChanged(state, batch.items, batch.size);
+    }
+
 }
@@ -1,17 +1,34 @@
 package rx.picasso;
 
 import android.graphics.Bitmap;
+import android.net.Uri;
 import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
 
 import com.squareup.picasso.Picasso;
 
 public final class BitmapLoadedEvent implements PicassoEvent {
     private final Bitmap bitmap;
     private final Picasso.LoadedFrom from;
+    private final int sourceWidth, sourceHeight;
+    private final Uri uri;
 
     public BitmapLoadedEvent(@NonNull  Bitmap bitmap, @NonNull Picasso.LoadedFrom from) {
+        this(bitmap, from, bitmap.getWidth(), bitmap.getHeight(), null);
+    }
+
+    /**
+     * @param sourceWidth  width of the source image, larger than bitmap width when bitmap was downsampled
+     * @param sourceHeight height of the source image
+     * @param uri          source image, null if unknown
+     */
+    public BitmapLoadedEvent(@NonNull Bitmap bitmap, @NonNull Picasso.LoadedFrom from, int sourceWidth, int sourceHeight,
+                             @Nullable Uri uri) {
         this.bitmap = bitmap;
         this.from = from;
+        this.sourceWidth = sourceWidth;
+        this.sourceHeight = sourceHeight;
+        this.uri = uri;
     }
 
     @NonNull
@@ -23,4 +40,20 @@ public final class BitmapLoadedEvent implements PicassoEvent {
     public Picasso.LoadedFrom getFrom() {
         return from;
     }
+
+    public int getSourceWidth() {
+        return sourceWidth;
+    }
+
+    public int getSourceHeight() {
+        return sourceHeight;
+    }
+
+    /**
+     * @return source image, null if unknown
+     */
+    @Nullable
+    public Uri getUri() {
+        return uri;
+    }
 }
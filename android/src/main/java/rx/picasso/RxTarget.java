@@ -2,6 +2,7 @@ package rx.picasso;
 
 import android.graphics.Bitmap;
 import android.graphics.drawable.Drawable;
+import android.net.Uri;
 import android.support.annotation.NonNull;
 
 import com.squareup.picasso.Picasso;
@@ -28,6 +29,13 @@ public final class RxTarget implements Target {
         subject.onNext(TargetEvent.from(new BitmapLoadedEvent(bitmap, from)));
     }
 
+    /**
+     * Bitmap holding downsampled source image of given size, loaded from given uri.
+     */
+    public void onBitmapLoaded(Bitmap bitmap, Picasso.LoadedFrom from, int sourceWidth, int sourceHeight, Uri uri) {
+        subject.onNext(TargetEvent.from(new BitmapLoadedEvent(bitmap, from, sourceWidth, sourceHeight, uri)));
+    }
+
     @Override
     public void onBitmapFailed(Drawable errorDrawable) {
         subject.onNext(TargetEvent.from(new BitmapFailedEvent(errorDrawable)));
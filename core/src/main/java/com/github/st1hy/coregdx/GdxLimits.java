@@ -0,0 +1,28 @@
+package com.github.st1hy.coregdx;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.graphics.GL20;
+import com.badlogic.gdx.utils.BufferUtils;
+
+import java.nio.IntBuffer;
+
+/**
+ * Hardware limits of current GL context. Must be queried from GL thread.
+ */
+public enum GdxLimits {
+    ;
+    private static final int MIN_MAX_TEXTURE_SIZE = 64;
+    private static int maxTextureSize = 0;
+
+    /**
+     * @return value of GL_MAX_TEXTURE_SIZE, width and height of the largest texture GPU accepts.
+     */
+    public static int getMaxTextureSize() {
+        if (maxTextureSize == 0) {
+            IntBuffer buffer = BufferUtils.newIntBuffer(16);
+            Gdx.gl.glGetIntegerv(GL20.GL_MAX_TEXTURE_SIZE, buffer);
+            maxTextureSize = Math.max(buffer.get(0), MIN_MAX_TEXTURE_SIZE);
+        }
+        return maxTextureSize;
+    }
+}
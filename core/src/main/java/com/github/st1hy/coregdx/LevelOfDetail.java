@@ -0,0 +1,45 @@
+package com.github.st1hy.coregdx;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.math.Affine2;
+
+/**
+ * Detail levels of textures. Level 0 is full resolution, each next level halves it.
+ */
+public enum LevelOfDetail {
+    ;
+    public static final int MAX_LEVEL = 4;
+
+    /**
+     * @return scale factor of the 2D part of the transformation (geometric mean of axis scales)
+     */
+    public static float getScale(Affine2 transformation) {
+        float det = transformation.det();
+        return (float) Math.sqrt(Math.abs(det));
+    }
+
+    /**
+     * @return lowest detail level which still has at least one texel per screen pixel at given scale
+     */
+    public static int levelOf(float scale) {
+        if (scale >= 1f || scale <= 0f) return 0;
+        int level = MathUtils.floor((float) (Math.log(1f / scale) / Math.log(2)));
+        return MathUtils.clamp(level, 0, MAX_LEVEL);
+    }
+
+    /**
+     * @return resolution scale of the level
+     */
+    public static float scaleOf(int level) {
+        return 1f / (1 << level);
+    }
+
+    /**
+     * @return true if mip maps can be generated for texture of given size on this device
+     */
+    public static boolean canUseMipMaps(int width, int height) {
+        boolean isPowerOfTwo = MathUtils.isPowerOfTwo(width) && MathUtils.isPowerOfTwo(height);
+        return isPowerOfTwo || Gdx.gl30 != null || Gdx.graphics.supportsExtension("GL_OES_texture_npot");
+    }
+}
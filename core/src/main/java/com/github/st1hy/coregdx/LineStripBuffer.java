@@ -0,0 +1,130 @@
+package com.github.st1hy.coregdx;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.GL20;
+import com.badlogic.gdx.graphics.glutils.ShaderProgram;
+import com.badlogic.gdx.math.Matrix4;
+import com.badlogic.gdx.utils.BufferUtils;
+import com.badlogic.gdx.utils.Disposable;
+import com.badlogic.gdx.utils.FloatArray;
+
+import java.nio.FloatBuffer;
+
+/**
+ * Poly line kept in GPU vertex buffer which grows together with the line.
+ * <p>
+ * Only points added since last update are uploaded. Storage grows geometrically and is kept after
+ * {@link #reset()}, so following lines reuse it. Must be used on GL thread.
+ */
+public class LineStripBuffer implements Disposable {
+    private static final int INITIAL_CAPACITY = 512;
+    private static final String VERTEX_SHADER = ""
+            + "attribute vec4 " + ShaderProgram.POSITION_ATTRIBUTE + ";\n"
+            + "uniform mat4 u_projTrans;\n"
+            + "void main() {\n"
+            + "    gl_Position = u_projTrans * " + ShaderProgram.POSITION_ATTRIBUTE + ";\n"
+            + "}\n";
+    private static final String FRAGMENT_SHADER = ""
+            + "#ifdef GL_ES\n"
+            + "precision mediump float;\n"
+            + "#endif\n"
+            + "uniform vec4 u_color;\n"
+            + "void main() {\n"
+            + "    gl_FragColor = u_color;\n"
+            + "}\n";
+
+    private ShaderProgram shader;
+    private FloatBuffer staging;
+    private int handle = 0;
+    /**
+     * Sizes in floats.
+     */
+    private int capacity = 0, uploaded = 0;
+
+    /**
+     * Uploads points appended to the line since last update.
+     *
+     * @param points x, y pairs of the line, previously uploaded values must not change
+     */
+    public void update(FloatArray points) {
+        if (points.size < uploaded) uploaded = 0;
+        if (points.size == uploaded) return;
+        if (handle == 0) {
+            handle = Gdx.gl.glGenBuffer();
+            capacity = 0;
+            uploaded = 0;
+        }
+        Gdx.gl.glBindBuffer(GL20.GL_ARRAY_BUFFER, handle);
+        if (points.size > capacity) {
+            int newCapacity = Math.max(INITIAL_CAPACITY, capacity);
+            while (newCapacity < points.size) newCapacity *= 2;
+            Gdx.gl.glBufferData(GL20.GL_ARRAY_BUFFER, newCapacity * 4, null, GL20.GL_DYNAMIC_DRAW);
+            staging = BufferUtils.newFloatBuffer(newCapacity);
+            capacity = newCapacity;
+            uploaded = 0;
+        }
+        int count = points.size - uploaded;
+        staging.clear();
+        staging.put(points.items, uploaded, count);
+        staging.flip();
+        Gdx.gl.glBufferSubData(GL20.GL_ARRAY_BUFFER, uploaded * 4, count * 4, staging);
+        Gdx.gl.glBindBuffer(GL20.GL_ARRAY_BUFFER, 0);
+        uploaded = points.size;
+    }
+
+    /**
+     * Starts new line, buffer storage is kept.
+     */
+    public void reset() {
+        uploaded = 0;
+    }
+
+    /**
+     * Called when GL context may have been lost. Buffer name cannot tell whether it belongs to the new context,
+     * so it is dropped without deleting and line is uploaded to a new buffer on next update.
+     */
+    public void invalidate() {
+        handle = 0;
+        capacity = 0;
+        uploaded = 0;
+    }
+
+    /**
+     * Draws uploaded part of the line with single draw call.
+     */
+    public void draw(Matrix4 projTrans, Color color) {
+        int count = uploaded / 2;
+        if (count < 2) return;
+        if (shader == null) {
+            shader = new ShaderProgram(VERTEX_SHADER, FRAGMENT_SHADER);
+            if (!shader.isCompiled()) throw new IllegalStateException("Line shader: " + shader.getLog());
+        }
+        shader.begin();
+        shader.setUniformMatrix("u_projTrans", projTrans);
+        shader.setUniformf("u_color", color);
+        Gdx.gl.glBindBuffer(GL20.GL_ARRAY_BUFFER, handle);
+        int location = shader.getAttributeLocation(ShaderProgram.POSITION_ATTRIBUTE);
+        shader.enableVertexAttribute(location);
+        shader.setVertexAttribute(location, 2, GL20.GL_FLOAT, false, 0, 0);
+        Gdx.gl.glDrawArrays(GL20.GL_LINE_STRIP, 0, count);
+        shader.disableVertexAttribute(location);
+        Gdx.gl.glBindBuffer(GL20.GL_ARRAY_BUFFER, 0);
+        shader.end();
+    }
+
+    @Override
+    public void dispose() {
+        if (handle != 0) {
+            Gdx.gl.glDeleteBuffer(handle);
+            handle = 0;
+        }
+        if (shader != null) {
+            shader.dispose();
+            shader = null;
+        }
+        capacity = 0;
+        uploaded = 0;
+        staging = null;
+    }
+}
@@ -10,4 +10,13 @@ public interface OnPathChangedListener {
      * @param oldY y coordinate of previous point in path
      */
     void onPathChanged(TouchEventState state, float x, float y, float oldX, float oldY);
+
+    /**
+     * Receives all samples of the path delivered by single touch event at once.
+     *
+     * @param state  show state of drawing line. When {@link TouchEventState#STARTED} first point starts new path.
+     * @param points x, y pairs of new points in path, in order
+     * @param count  number of values in points to read
+     */
+    void onPathChanged(TouchEventState state, float[] points, int count);
 }
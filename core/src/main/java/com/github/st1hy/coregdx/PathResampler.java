@@ -0,0 +1,70 @@
+package com.github.st1hy.coregdx;
+
+import com.badlogic.gdx.utils.FloatArray;
+
+/**
+ * Resamples poly line arriving point by point into points placed at fixed distance along the line.
+ * <p>
+ * Dense bursts of samples collapse into evenly spaced points, long jumps between samples are filled in,
+ * so captured path density does not depend on speed of the stroke.
+ */
+public class PathResampler {
+    private float spacing = 1f;
+    private boolean hasPoint = false;
+    private float previousX, previousY;
+    private float lastX, lastY;
+    private float distanceSinceLast;
+
+    /**
+     * Starts new line.
+     *
+     * @param spacing distance between output points, in units of added points
+     */
+    public void reset(float spacing) {
+        this.spacing = Math.max(spacing, 1e-3f);
+        hasPoint = false;
+        distanceSinceLast = 0;
+    }
+
+    /**
+     * Adds next sample of the line. First sample is always written to output.
+     */
+    public void add(float x, float y, FloatArray output) {
+        if (!hasPoint) {
+            hasPoint = true;
+            emit(x, y, output);
+            previousX = x;
+            previousY = y;
+            return;
+        }
+        float dx = x - previousX, dy = y - previousY;
+        float length = (float) Math.sqrt(dx * dx + dy * dy);
+        if (length == 0) return;
+        float position = spacing - distanceSinceLast;
+        while (position <= length) {
+            float t = position / length;
+            emit(previousX + t * dx, previousY + t * dy, output);
+            position += spacing;
+        }
+        distanceSinceLast = length - (position - spacing);
+        previousX = x;
+        previousY = y;
+    }
+
+    /**
+     * Writes last sample if it was not written yet, so line ends exactly where input ended.
+     */
+    public void finish(FloatArray output) {
+        if (hasPoint && (previousX != lastX || previousY != lastY)) {
+            emit(previousX, previousY, output);
+        }
+    }
+
+    private void emit(float x, float y, FloatArray output) {
+        output.add(x);
+        output.add(y);
+        lastX = x;
+        lastY = y;
+        distanceSinceLast = 0;
+    }
+}
@@ -0,0 +1,75 @@
+package com.github.st1hy.coregdx;
+
+import com.badlogic.gdx.utils.FloatArray;
+import com.badlogic.gdx.utils.IntArray;
+
+import java.util.Arrays;
+
+/**
+ * Ramer-Douglas-Peucker simplification of poly lines.
+ * <p>
+ * Removes points closer than tolerance to the line approximating them. First and last points are always kept.
+ * Work buffers are reused between calls, so single instance must not be used from multiple threads.
+ */
+public class PathSimplifier {
+    private final IntArray stack = new IntArray();
+    private boolean[] keep = new boolean[0];
+
+    /**
+     * @param points    x, y pairs of poly line
+     * @param tolerance maximum distance of removed point from simplified line
+     * @return simplified poly line
+     */
+    public float[] simplify(float[] points, float tolerance) {
+        int count = points.length / 2;
+        if (count < 3 || tolerance <= 0) return points;
+        if (keep.length < count) keep = new boolean[count];
+        Arrays.fill(keep, 0, count, false);
+        keep[0] = true;
+        keep[count - 1] = true;
+        float toleranceSquared = tolerance * tolerance;
+        stack.clear();
+        stack.add(0);
+        stack.add(count - 1);
+        while (stack.size > 0) {
+            int last = stack.pop();
+            int first = stack.pop();
+            float maxDistance = 0;
+            int index = -1;
+            for (int i = first + 1; i < last; ++i) {
+                float distance = distanceToSegmentSquared(points, i, first, last);
+                if (distance > maxDistance) {
+                    maxDistance = distance;
+                    index = i;
+                }
+            }
+            if (index >= 0 && maxDistance > toleranceSquared) {
+                keep[index] = true;
+                stack.add(first);
+                stack.add(index);
+                stack.add(index);
+                stack.add(last);
+            }
+        }
+        FloatArray result = new FloatArray(points.length);
+        for (int i = 0; i < count; ++i) {
+            if (keep[i]) {
+                result.add(points[2 * i]);
+                result.add(points[2 * i + 1]);
+            }
+        }
+        return result.toArray();
+    }
+
+    private static float distanceToSegmentSquared(float[] points, int point, int start, int end) {
+        float px = points[2 * point], py = points[2 * point + 1];
+        float ax = points[2 * start], ay = points[2 * start + 1];
+        float bx = points[2 * end], by = points[2 * end + 1];
+        float dx = bx - ax, dy = by - ay;
+        float lengthSquared = dx * dx + dy * dy;
+        float t = lengthSquared > 0 ? ((px - ax) * dx + (py - ay) * dy) / lengthSquared : 0;
+        t = Math.max(0, Math.min(1, t));
+        float x = ax + t * dx - px, y = ay + t * dy - py;
+        return x * x + y * y;
+    }
+}
@@ -0,0 +1,149 @@
+package com.github.st1hy.coregdx;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * Writes 8 bit RGBA PNG row by row, top row first.
+ * <p>
+ * Rows are filtered with Sub filter and compressed as they arrive, compressed data is written out in
+ * IDAT chunks of limited size, so only single row and single chunk are kept in memory regardless of image size.
+ */
+public class PngStreamEncoder implements Closeable {
+    private static final byte[] SIGNATURE = {(byte) 137, 80, 78, 71, 13, 10, 26, 10};
+    private static final int IHDR = 0x49484452, IDAT = 0x49444154, IEND = 0x49454E44;
+    private static final int CHUNK_SIZE = 64 * 1024;
+    private static final int BYTES_PER_PIXEL = 4;
+    private static final byte FILTER_SUB = 1;
+
+    private final OutputStream out;
+    private final int width, height;
+    private final byte[] row;
+    private final Deflater deflater;
+    private final DeflaterOutputStream compressed;
+    private final CRC32 crc = new CRC32();
+    private final byte[] chunk = new byte[CHUNK_SIZE];
+    private int chunkLength = 0;
+    private int rowsWritten = 0;
+    private boolean isClosed = false;
+
+    /**
+     * Writes signature and header. Output stream is closed together with encoder.
+     *
+     * @param compressionLevel see {@link Deflater#setLevel(int)}
+     */
+    public PngStreamEncoder(OutputStream out, int width, int height, int compressionLevel) throws IOException {
+        if (width <= 0 || height <= 0) throw new IllegalArgumentException("Invalid size: " + width + "x" + height);
+        this.out = out;
+        this.width = width;
+        this.height = height;
+        this.row = new byte[1 + width * BYTES_PER_PIXEL];
+        this.deflater = new Deflater(compressionLevel);
+        this.compressed = new DeflaterOutputStream(new ChunkStream(), deflater, CHUNK_SIZE);
+        out.write(SIGNATURE);
+        ByteBuffer header = ByteBuffer.allocate(13);
+        header.putInt(width).putInt(height);
+        header.put((byte) 8).put((byte) 6).put((byte) 0).put((byte) 0).put((byte) 0);
+        writeChunk(IHDR, header.array(), 13);
+    }
+
+    public PngStreamEncoder(OutputStream out, int width, int height) throws IOException {
+        this(out, width, height, Deflater.DEFAULT_COMPRESSION);
+    }
+
+    /**
+     * @param pixels buffer with RGBA pixels of the row starting at its current position, position is advanced
+     *               past the row
+     */
+    public void writeRow(ByteBuffer pixels) throws IOException {
+        if (rowsWritten >= height) throw new IllegalStateException("All " + height + " rows were written");
+        row[0] = FILTER_SUB;
+        pixels.get(row, 1, width * BYTES_PER_PIXEL);
+        for (int i = row.length - 1; i > BYTES_PER_PIXEL; --i) {
+            row[i] -= row[i - BYTES_PER_PIXEL];
+        }
+        compressed.write(row);
+        rowsWritten++;
+    }
+
+    /**
+     * @return number of rows still expected
+     */
+    public int getRemainingRows() {
+        return height - rowsWritten;
+    }
+
+    /**
+     * Finishes image and closes output stream.
+     *
+     * @throws IllegalStateException if not all rows were written
+     */
+    @Override
+    public void close() throws IOException {
+        if (isClosed) return;
+        isClosed = true;
+        try {
+            if (rowsWritten != height) {
+                throw new IllegalStateException("Image incomplete: " + rowsWritten + " of " + height + " rows");
+            }
+            compressed.finish();
+            flushChunk();
+            writeChunk(IEND, chunk, 0);
+        } finally {
+            deflater.end();
+            out.close();
+        }
+    }
+
+    private void flushChunk() throws IOException {
+        if (chunkLength == 0) return;
+        writeChunk(IDAT, chunk, chunkLength);
+        chunkLength = 0;
+    }
+
+    private void writeChunk(int type, byte[] data, int length) throws IOException {
+        writeInt(length);
+        crc.reset();
+        byte[] typeBytes = {(byte) (type >>> 24), (byte) (type >>> 16), (byte) (type >>> 8), (byte) type};
+        out.write(typeBytes);
+        crc.update(typeBytes);
+        out.write(data, 0, length);
+        crc.update(data, 0, length);
+        writeInt((int) crc.getValue());
+    }
+
+    private void writeInt(int value) throws IOException {
+        out.write(value >>> 24);
+        out.write(value >>> 16);
+        out.write(value >>> 8);
+        out.write(value);
+    }
+
+    /**
+     * Collects compressed data into IDAT chunks.
+     */
+    private class ChunkStream extends OutputStream {
+        @Override
+        public void write(int b) throws IOException {
+            if (chunkLength == CHUNK_SIZE) flushChunk();
+            chunk[chunkLength++] = (byte) b;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            while (len > 0) {
+                if (chunkLength == CHUNK_SIZE) flushChunk();
+                int count = Math.min(len, CHUNK_SIZE - chunkLength);
+                System.arraycopy(b, off, chunk, chunkLength, count);
+                chunkLength += count;
+                off += count;
+                len -= count;
+            }
+        }
+    }
+}
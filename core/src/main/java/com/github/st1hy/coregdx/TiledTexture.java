@@ -0,0 +1,222 @@
+package com.github.st1hy.coregdx;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.graphics.GL20;
+import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.g2d.Batch;
+import com.badlogic.gdx.graphics.glutils.GLOnlyTextureData;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.Disposable;
+
+/**
+ * Image split into grid of textures, so images larger than GL_MAX_TEXTURE_SIZE can be displayed.
+ * <p>
+ * Tiles are positioned in image coordinates: origin in bottom left corner of the image, 1 unit = 1 source pixel.
+ * Textures may hold the image at lower resolution than the source (texture size smaller than image size),
+ * tiles still cover the whole image in image coordinates.
+ */
+public class TiledTexture implements Disposable {
+    private static final int DEFAULT_TILE_SIZE = 2048;
+
+    private final int width, height;
+    private final int textureWidth, textureHeight;
+    private final Array<Tile> tiles;
+    private boolean hasMipMaps = false;
+
+    /**
+     * Fills tile texture with pixels of the source image.
+     */
+    public interface TileLoader {
+        /**
+         * Called on GL thread.
+         *
+         * @param tile   texture of size width x height to upload pixels into
+         * @param srcX   left edge of the tile in pixels of the loaded bitmap
+         * @param srcY   top edge of the tile in pixels of the loaded bitmap (rows go top to bottom)
+         */
+        void load(Texture tile, int srcX, int srcY, int width, int height);
+    }
+
+    private TiledTexture(int width, int height, int textureWidth, int textureHeight, Array<Tile> tiles) {
+        this.width = width;
+        this.height = height;
+        this.textureWidth = textureWidth;
+        this.textureHeight = textureHeight;
+        this.tiles = tiles;
+    }
+
+    /**
+     * @return largest tile size supported by the device, limited to reasonable upload unit.
+     */
+    public static int getDefaultTileSize() {
+        return Math.min(DEFAULT_TILE_SIZE, GdxLimits.getMaxTextureSize());
+    }
+
+    /**
+     * Creates textures of at most tileSize x tileSize pixels covering width x height source image.
+     * Must be called on GL thread.
+     */
+    public static TiledTexture create(int width, int height, int tileSize, TileLoader loader) {
+        return create(width, height, width, height, tileSize, loader);
+    }
+
+    /**
+     * Creates textures of at most tileSize x tileSize pixels holding width x height source image
+     * at resolution of textureWidth x textureHeight. Must be called on GL thread.
+     */
+    public static TiledTexture create(int width, int height, int textureWidth, int textureHeight,
+                                      int tileSize, TileLoader loader) {
+        float scaleX = (float) width / textureWidth;
+        float scaleY = (float) height / textureHeight;
+        Array<Tile> tiles = new Array<>();
+        for (int srcY = 0; srcY < textureHeight; srcY += tileSize) {
+            int tileHeight = Math.min(tileSize, textureHeight - srcY);
+            for (int srcX = 0; srcX < textureWidth; srcX += tileSize) {
+                int tileWidth = Math.min(tileSize, textureWidth - srcX);
+                Texture texture = new Texture(new GLOnlyTextureData(tileWidth, tileHeight, 0,
+                        GL20.GL_RGBA, GL20.GL_RGBA, GL20.GL_UNSIGNED_BYTE));
+                loader.load(texture, srcX, srcY, tileWidth, tileHeight);
+                tiles.add(new Tile(texture, srcX * scaleX, (textureHeight - srcY - tileHeight) * scaleY,
+                        tileWidth * scaleX, tileHeight * scaleY));
+            }
+        }
+        return new TiledTexture(width, height, textureWidth, textureHeight, tiles);
+    }
+
+    public static TiledTexture create(int width, int height, int textureWidth, int textureHeight, TileLoader loader) {
+        return create(width, height, textureWidth, textureHeight, getDefaultTileSize(), loader);
+    }
+
+    public static TiledTexture create(int width, int height, TileLoader loader) {
+        return create(width, height, getDefaultTileSize(), loader);
+    }
+
+    /**
+     * Copies pixmap into tiles. Pixmap is not disposed.
+     */
+    public static TiledTexture fromPixmap(final Pixmap pixmap, int tileSize) {
+        return create(pixmap.getWidth(), pixmap.getHeight(), tileSize, new TileLoader() {
+            @Override
+            public void load(Texture tile, int srcX, int srcY, int width, int height) {
+                Pixmap tilePixmap = new Pixmap(width, height, pixmap.getFormat());
+                tilePixmap.drawPixmap(pixmap, 0, 0, srcX, srcY, width, height);
+                tile.draw(tilePixmap, 0, 0);
+                tilePixmap.dispose();
+            }
+        });
+    }
+
+    /**
+     * Draws all tiles in image coordinates using current batch transformation.
+     */
+    public void draw(Batch batch) {
+        for (int i = 0; i < tiles.size; ++i) {
+            tiles.get(i).draw(batch);
+        }
+    }
+
+    /**
+     * Builds mip chains of all tiles on first call. Tiles which cannot have mip maps on this device
+     * are switched to linear filtering instead. Must be called on GL thread.
+     */
+    public void useMipMaps() {
+        if (hasMipMaps) return;
+        hasMipMaps = true;
+        for (int i = 0; i < tiles.size; ++i) {
+            Texture texture = tiles.get(i).texture;
+            if (LevelOfDetail.canUseMipMaps(texture.getWidth(), texture.getHeight())) {
+                texture.bind();
+                Gdx.gl.glGenerateMipmap(GL20.GL_TEXTURE_2D);
+                texture.setFilter(Texture.TextureFilter.MipMapLinearLinear, Texture.TextureFilter.Linear);
+            } else {
+                texture.setFilter(Texture.TextureFilter.Linear, Texture.TextureFilter.Linear);
+            }
+        }
+    }
+
+    public boolean hasMipMaps() {
+        return hasMipMaps;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * @return width of the image held by textures, smaller than {@link #getWidth()} when image was downsampled
+     */
+    public int getTextureWidth() {
+        return textureWidth;
+    }
+
+    public int getTextureHeight() {
+        return textureHeight;
+    }
+
+    public Array<Tile> getTiles() {
+        return tiles;
+    }
+
+    @Override
+    public void dispose() {
+        for (int i = 0; i < tiles.size; ++i) {
+            tiles.get(i).texture.dispose();
+        }
+        tiles.clear();
+    }
+
+    public static class Tile {
+        private final Texture texture;
+        private final float x, y, width, height;
+
+        private Tile(Texture texture, float x, float y, float width, float height) {
+            this.texture = texture;
+            this.x = x;
+            this.y = y;
+            this.width = width;
+            this.height = height;
+        }
+
+        public void draw(Batch batch) {
+            batch.draw(texture, x, y, width, height);
+        }
+
+        public Texture getTexture() {
+            return texture;
+        }
+
+        /**
+         * @return left edge in image coordinates
+         */
+        public float getX() {
+            return x;
+        }
+
+        /**
+         * @return bottom edge in image coordinates
+         */
+        public float getY() {
+            return y;
+        }
+
+        /**
+         * @return width in image coordinates, may differ from width of the texture
+         */
+        public float getWidth() {
+            return width;
+        }
+
+        public float getHeight() {
+            return height;
+        }
+
+        public boolean overlaps(float x, float y, float width, float height) {
+            return this.x < x + width && x < this.x + this.width && this.y < y + height && y < this.y + this.height;
+        }
+    }
+}
@@ -1,7 +1,7 @@
 package com.github.st1hy.coregdx;
 
+import com.badlogic.gdx.math.Affine2;
 import com.badlogic.gdx.math.Matrix3;
-import com.badlogic.gdx.math.Matrix4;
 
 public interface Transformable {
     void applyTransformation(TouchEventState state, Matrix3 matrix3);
@@ -18,17 +18,17 @@ public interface Transformable {
             }
         }
         @Override
-        public void apply(Transformation transformation, TouchEventState state, Matrix4 matrix4) {
+        public void apply(Transformation transformation, TouchEventState state, Affine2 affine2) {
             if (state == TouchEventState.STARTED) {
-                transformation.applyTransformationRelative(matrix4);
+                transformation.applyTransformationRelative(affine2);
             } else {
-                transformation.applyTransformation(matrix4);
+                transformation.applyTransformation(affine2);
             }
         }
     };
 
     interface AppliedTransformation {
         void apply(Transformation transformation, TouchEventState state, Matrix3 matrix3);
-        void apply(Transformation transformation, TouchEventState state, Matrix4 matrix3);
+        void apply(Transformation transformation, TouchEventState state, Affine2 affine2);
     }
 }
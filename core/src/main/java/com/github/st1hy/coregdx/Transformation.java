@@ -1,15 +1,35 @@
 package com.github.st1hy.coregdx;
 
+import com.badlogic.gdx.math.Affine2;
 import com.badlogic.gdx.math.Matrix3;
 import com.badlogic.gdx.math.Matrix4;
+import com.badlogic.gdx.utils.Json;
+import com.badlogic.gdx.utils.JsonValue;
 
 import java.io.Serializable;
+import java.nio.ByteBuffer;
 
-public class Transformation implements Serializable {
-    private final Matrix4 initialTransformation = new Matrix4();
-    private final Matrix4 transformation = new Matrix4();
-    private final Matrix4 invTransformation = new Matrix4();
+/**
+ * 2D transformation made of rotation, scale and translation, kept as affine matrix (six floats).
+ * <p>
+ * Inverse and {@link Matrix4} form are computed lazily, the latter only for batch and shader
+ * uniforms which need it. Every change increments {@link #getVersion() version}, so values derived
+ * from the transformation can be cached.
+ */
+public class Transformation implements Serializable, Json.Serializable {
+    private final Affine2 initialTransformation = new Affine2();
+    private final Affine2 transformation = new Affine2();
+    private final Affine2 invTransformation = new Affine2();
+    private transient Matrix4 matrix;
     private boolean dirty = false;
+    private transient boolean isMatrixDirty = true;
+    private transient int version = 0;
+
+    /**
+     * Binary form: translation is stored in fixed point with this many steps per unit.
+     */
+    private static final float TRANSLATION_STEPS = 256f;
+    private static final byte BINARY_IDENTITY = 0, BINARY_TRANSLATION = 1, BINARY_AFFINE = 2;
 
     public Transformation() {
     }
@@ -21,7 +41,7 @@ public class Transformation implements Serializable {
      * result of multiplication current by initial matrix.
      *
      */
-    public void applyTransformationRelative(Matrix4 transformation) {
+    public void applyTransformationRelative(Affine2 transformation) {
         initialTransformation.set(this.transformation);
         applyTransformation(transformation);
     }
@@ -40,15 +60,15 @@ public class Transformation implements Serializable {
 
 
     /**
-     * Multiplies initial state of transformation by provided matrix4 and sets current value.
+     * Multiplies initial state of transformation by provided matrix and sets current value.
      */
-    public void applyTransformation(Matrix4 transformation) {
+    public void applyTransformation(Affine2 transformation) {
         this.transformation.set(transformation).mul(initialTransformation);
         setDirty();
     }
 
     /**
-     * Multiplies initial state of transformation by provided matrix4 and sets current value.
+     * Multiplies initial state of transformation by provided matrix3 and sets current value.
      */
     public void applyTransformation(Matrix3 transformation) {
         this.transformation.set(transformation).mul(initialTransformation);
@@ -56,7 +76,15 @@ public class Transformation implements Serializable {
     }
 
     /**
-     * Sets current transformation matrix to provided matrix4.
+     * Sets current transformation matrix to provided affine matrix.
+     */
+    public void setTransformationRaw(Affine2 transformation) {
+        this.transformation.set(transformation);
+        setDirty();
+    }
+
+    /**
+     * Sets current transformation matrix to 2D part of provided matrix4.
      */
     public void setTransformationRaw(Matrix4 transformation) {
         this.transformation.set(transformation);
@@ -72,14 +100,21 @@ public class Transformation implements Serializable {
     }
 
     /**
-     * Sets current transformation matrix to provided matrix4.
+     * Sets initial transformation matrix to provided affine matrix.
+     */
+    public void setInitialTransformationRaw(Affine2 transformation) {
+        this.initialTransformation.set(transformation);
+    }
+
+    /**
+     * Sets initial transformation matrix to 2D part of provided matrix4.
      */
     public void setInitialTransformationRaw(Matrix4 transformation) {
         this.initialTransformation.set(transformation);
     }
 
     /**
-     * Sets current transformation matrix to provided matrix3.
+     * Sets initial transformation matrix to provided matrix3.
      */
     public void setInitialTransformationRaw(Matrix3 transformation) {
         this.initialTransformation.set(transformation);
@@ -91,23 +126,149 @@ public class Transformation implements Serializable {
         setDirty();
     }
 
+    /**
+     * Must be called after current transformation was changed directly.
+     */
     public void setDirty() {
         dirty = true;
+        isMatrixDirty = true;
+        version++;
+    }
+
+    /**
+     * @return modification counter, changes whenever current transformation changes
+     */
+    public int getVersion() {
+        return version;
     }
 
-    public Matrix4 getTransformation() {
+    /**
+     * Returned value must not be modified, use one of the setters instead.
+     */
+    public Affine2 getTransformation() {
         return transformation;
     }
 
-    public Matrix4 getInitialTransformation() {
+    public Affine2 getInitialTransformation() {
         return initialTransformation;
     }
 
-    public Matrix4 getInvTransformation() {
+    public Affine2 getInvTransformation() {
         if (dirty) {
             invTransformation.set(transformation).inv();
             dirty = false;
         }
         return invTransformation;
     }
+
+    /**
+     * @return current transformation as matrix4, for batch transform matrix and shader uniforms.
+     * Returned value must not be modified.
+     */
+    public Matrix4 getMatrix() {
+        if (matrix == null || isMatrixDirty) {
+            if (matrix == null) matrix = new Matrix4();
+            matrix.set(transformation);
+            isMatrixDirty = false;
+        }
+        return matrix;
+    }
+
+    /**
+     * @return number of bytes {@link #write(ByteBuffer)} puts into buffer
+     */
+    public int getBinarySize() {
+        switch (getBinaryType()) {
+            case BINARY_IDENTITY:
+                return 1;
+            case BINARY_TRANSLATION:
+                return 1 + 2 * 4;
+            default:
+                return 1 + 6 * 4;
+        }
+    }
+
+    private byte getBinaryType() {
+        if (transformation.isIdt()) return BINARY_IDENTITY;
+        if (transformation.isTranslation()) return BINARY_TRANSLATION;
+        return BINARY_AFFINE;
+    }
+
+    /**
+     * Writes current transformation in compact binary form: type byte, then linear part as floats when
+     * it is not identity, then translation quantized to 1/{@value #TRANSLATION_STEPS} unit.
+     */
+    public void write(ByteBuffer buffer) {
+        byte type = getBinaryType();
+        buffer.put(type);
+        if (type == BINARY_IDENTITY) return;
+        if (type == BINARY_AFFINE) {
+            buffer.putFloat(transformation.m00);
+            buffer.putFloat(transformation.m01);
+            buffer.putFloat(transformation.m10);
+            buffer.putFloat(transformation.m11);
+        }
+        buffer.putInt(Math.round(transformation.m02 * TRANSLATION_STEPS));
+        buffer.putInt(Math.round(transformation.m12 * TRANSLATION_STEPS));
+    }
+
+    /**
+     * Reads transformation written by {@link #write(ByteBuffer)}.
+     */
+    public void read(ByteBuffer buffer) {
+        byte type = buffer.get();
+        transformation.idt();
+        if (type == BINARY_AFFINE) {
+            transformation.m00 = buffer.getFloat();
+            transformation.m01 = buffer.getFloat();
+            transformation.m10 = buffer.getFloat();
+            transformation.m11 = buffer.getFloat();
+        } else if (type != BINARY_TRANSLATION && type != BINARY_IDENTITY) {
+            throw new IllegalArgumentException("Invalid transformation type: " + type);
+        }
+        if (type != BINARY_IDENTITY) {
+            transformation.m02 = buffer.getInt() / TRANSLATION_STEPS;
+            transformation.m12 = buffer.getInt() / TRANSLATION_STEPS;
+        }
+        initialTransformation.set(transformation);
+        setDirty();
+    }
+
+    /**
+     * Only current transformation is written, as six floats. Between gestures initial transformation
+     * is equal to it.
+     */
+    @Override
+    public void write(Json json) {
+        Affine2 t = transformation;
+        json.writeValue("transformation", new float[]{t.m00, t.m01, t.m02, t.m10, t.m11, t.m12});
+    }
+
+    /**
+     * Reads compact form as well as the previous one, where every matrix was written as 16 floats of matrix4.
+     */
+    @Override
+    public void read(Json json, JsonValue jsonData) {
+        JsonValue value = jsonData.get("transformation");
+        if (value == null) {
+            idt();
+            return;
+        }
+        if (value.isArray()) {
+            float[] m = value.asFloatArray();
+            if (m.length != 6) throw new IllegalArgumentException("Invalid transformation: " + value);
+            transformation.m00 = m[0];
+            transformation.m01 = m[1];
+            transformation.m02 = m[2];
+            transformation.m10 = m[3];
+            transformation.m11 = m[4];
+            transformation.m12 = m[5];
+        } else {
+            JsonValue legacy = value.get("val");
+            if (legacy == null || legacy.size != 16) throw new IllegalArgumentException("Invalid transformation: " + value);
+            transformation.set(new Matrix4(legacy.asFloatArray()));
+        }
+        initialTransformation.set(transformation);
+        setDirty();
+    }
 }
@@ -0,0 +1,103 @@
+package com.github.st1hy.coregdx;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.math.Matrix3;
+import com.badlogic.gdx.utils.Array;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Passes touch transformations from input thread to GL thread, once per frame.
+ * <p>
+ * Transformations received between frames are merged: within a gesture only the newest matrix is kept,
+ * as every matrix after {@link TouchEventState#STARTED} replaces the previous one. Starts of gestures and
+ * resets are kept in order. Pending steps are handed over through single atomic reference, without locks,
+ * and applied to the target by {@link #drain()} on GL thread.
+ */
+public class TransformationCoalescer implements Transformable {
+    private final AtomicReference<Step> pending = new AtomicReference<>();
+    private final Array<Step> drained = new Array<>();
+    private Transformable target;
+
+    /**
+     * Must be called on GL thread. Transformations still pending are discarded.
+     */
+    public void setTarget(Transformable target) {
+        this.target = target;
+        pending.set(null);
+    }
+
+    /**
+     * Called on input thread.
+     */
+    @Override
+    public void applyTransformation(TouchEventState state, Matrix3 matrix3) {
+        push(state, new Matrix3(matrix3));
+    }
+
+    /**
+     * Called on input thread.
+     */
+    @Override
+    public void resetTransformation() {
+        push(null, null);
+    }
+
+    private void push(TouchEventState state, Matrix3 matrix) {
+        Step previous, next;
+        do {
+            previous = pending.get();
+            Step base = previous;
+            if (state != null && state != TouchEventState.STARTED && previous != null && previous.isReplaceable()) {
+                base = previous.previous;
+            }
+            next = new Step(state, matrix, base);
+        } while (!pending.compareAndSet(previous, next));
+        Gdx.graphics.requestRendering();
+    }
+
+    /**
+     * Applies pending transformations to the target in order they were received. Must be called on GL thread.
+     *
+     * @return true if anything was applied
+     */
+    public boolean drain() {
+        Step last = pending.getAndSet(null);
+        if (last == null || target == null) return false;
+        for (Step step = last; step != null; step = step.previous) {
+            drained.add(step);
+        }
+        for (int i = drained.size - 1; i >= 0; --i) {
+            Step step = drained.get(i);
+            if (step.state == null) {
+                target.resetTransformation();
+            } else {
+                target.applyTransformation(step.state, step.matrix);
+            }
+        }
+        drained.clear();
+        return true;
+    }
+
+    /**
+     * Transformation or reset (state == null), linked to steps received before it.
+     */
+    private static class Step {
+        private final TouchEventState state;
+        private final Matrix3 matrix;
+        private final Step previous;
+
+        private Step(TouchEventState state, Matrix3 matrix, Step previous) {
+            this.state = state;
+            this.matrix = matrix;
+            this.previous = previous;
+        }
+
+        /**
+         * Matrix of gesture in progress is absolute to gesture start, newer one makes it obsolete.
+         */
+        private boolean isReplaceable() {
+            return state == TouchEventState.IN_PROGRESS;
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.github.st1hy.coregdx;
+
+import com.badlogic.gdx.math.Affine2;
+import com.badlogic.gdx.math.Rectangle;
+
+/**
+ * Tests whether transformed rectangles can be seen in the viewport.
+ */
+public class ViewportCuller {
+    private final Rectangle viewport = new Rectangle();
+    private final Rectangle bounds = new Rectangle();
+
+    public void setViewport(float x, float y, float width, float height) {
+        viewport.set(x, y, width, height);
+    }
+
+    public Rectangle getViewport() {
+        return viewport;
+    }
+
+    /**
+     * @param transformation transformation from rectangle coordinates to viewport coordinates
+     * @param margin         additional space around transformed rectangle in viewport units
+     * @return true if axis aligned bounds of transformed rectangle overlap viewport
+     */
+    public boolean isVisible(Affine2 transformation, float x, float y, float width, float height, float margin) {
+        transformBounds(transformation, x, y, width, height, bounds);
+        return isVisible(bounds, margin);
+    }
+
+    /**
+     * @param transformedBounds bounds already in viewport coordinates, see {@link #transformBounds}
+     * @param margin            additional space around bounds in viewport units
+     */
+    public boolean isVisible(Rectangle transformedBounds, float margin) {
+        return viewport.x < transformedBounds.x + transformedBounds.width + margin
+                && viewport.x + viewport.width > transformedBounds.x - margin
+                && viewport.y < transformedBounds.y + transformedBounds.height + margin
+                && viewport.y + viewport.height > transformedBounds.y - margin;
+    }
+
+    public boolean isVisible(Affine2 transformation, Rectangle rectangle, float margin) {
+        return isVisible(transformation, rectangle.x, rectangle.y, rectangle.width, rectangle.height, margin);
+    }
+
+    /**
+     * Computes axis aligned bounds of rectangle corners transformed by the matrix.
+     */
+    public static Rectangle transformBounds(Affine2 transformation, float x, float y, float width, float height, Rectangle out) {
+        Affine2 m = transformation;
+        float m00 = m.m00, m01 = m.m01, m10 = m.m10, m11 = m.m11;
+        float originX = m00 * x + m01 * y + m.m02;
+        float originY = m10 * x + m11 * y + m.m12;
+        float ax = m00 * width, ay = m10 * width;
+        float bx = m01 * height, by = m11 * height;
+        float minX = originX + Math.min(0, ax) + Math.min(0, bx);
+        float maxX = originX + Math.max(0, ax) + Math.max(0, bx);
+        float minY = originY + Math.min(0, ay) + Math.min(0, by);
+        float maxY = originY + Math.max(0, ay) + Math.max(0, by);
+        return out.set(minX, minY, maxX - minX, maxY - minY);
+    }
+}
@@ -4,12 +4,15 @@ import com.badlogic.gdx.ApplicationListener;
 import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.graphics.Color;
 import com.badlogic.gdx.graphics.GL20;
+import com.github.st1hy.coregdx.Transformable;
+import com.github.st1hy.coregdx.TransformationCoalescer;
 import com.github.st1hy.coregdx.screen.ScreenManager;
 
 
 public class ImageGdxCore implements ApplicationListener {
     private final Color background;
     private final ScreenManager screenManager;
+    private final TransformationCoalescer transformationInput = new TransformationCoalescer();
 
     public ImageGdxCore(Color backgroundColor) {
         this.background = backgroundColor;
@@ -23,9 +26,18 @@ public class ImageGdxCore implements ApplicationListener {
     public ImageScreen setImage(ScreenContext screenContext) {
         ImageScreen screen = new ImageScreen(screenContext);
         screenManager.setCurrentScreen(screen);
+        transformationInput.setTarget(screen);
         return screen;
     }
 
+    /**
+     * @return receiver of touch transformations safe to use from input thread. Transformations are applied
+     * to current screen at the start of next frame, at most one per gesture phase.
+     */
+    public Transformable getTransformationInput() {
+        return transformationInput;
+    }
+
     @Override
     public void create() {
         Gdx.graphics.setContinuousRendering(false);
@@ -39,6 +51,7 @@ public class ImageGdxCore implements ApplicationListener {
 
     @Override
     public void render() {
+        transformationInput.drain();
         screenManager.prerender();
         Gdx.gl.glClearColor(background.r, background.g, background.b, background.a);
         Gdx.gl.glClear(GL20.GL_COLOR_BUFFER_BIT);
@@ -1,25 +1,44 @@
 package com.github.st1hy.sabre.libgdx;
 
-import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.graphics.Color;
-import com.badlogic.gdx.graphics.Texture;
-import com.badlogic.gdx.graphics.g2d.SpriteBatch;
-import com.badlogic.gdx.graphics.glutils.ShapeRenderer;
+import com.badlogic.gdx.graphics.g2d.PolygonSpriteBatch;
+import com.badlogic.gdx.math.Affine2;
 import com.badlogic.gdx.math.Matrix3;
+import com.badlogic.gdx.math.Matrix4;
+import com.badlogic.gdx.utils.Array;
+import com.github.st1hy.coregdx.LevelOfDetail;
 import com.github.st1hy.coregdx.OnPathChangedListener;
+import com.github.st1hy.coregdx.TiledTexture;
 import com.github.st1hy.coregdx.TouchEventState;
 import com.github.st1hy.coregdx.Transformable;
+import com.github.st1hy.coregdx.ViewportCuller;
 import com.github.st1hy.coregdx.screen.TransformableScreen;
+import com.github.st1hy.sabre.libgdx.fragments.FragmentExporter;
+import com.github.st1hy.sabre.libgdx.fragments.FragmentRenderMode;
+import com.github.st1hy.sabre.libgdx.fragments.ImageFragment;
 import com.github.st1hy.sabre.libgdx.fragments.ImageFragmentSelector;
 import com.github.st1hy.sabre.libgdx.fragments.ImageFragments;
 
+import java.io.OutputStream;
+
+import rx.Observable;
+
 public class ImageScreen implements TransformableScreen {
     private ScreenContext screenContext;
 
-    private SpriteBatch batch;
-    private ShapeRenderer shapeRenderer;
+    private PolygonSpriteBatch batch;
     private SelectionRenderer selectionRenderer;
     private ImageFragments imageFragments;
+    private final Matrix4 identity = new Matrix4();
+    private final Matrix4 projection = new Matrix4(), shapesMatrix = new Matrix4();
+    private final ViewportCuller culler = new ViewportCuller();
+    private final RenderStatistics renderStatistics = new RenderStatistics();
+    private final LayerCache layerCache = new LayerCache();
+    /**
+     * Modification count of operation log changes are saved for. Session is saved once fragment is cut,
+     * deleted or released after it was moved, undo or redo. Baking and selection do not change it.
+     */
+    private int savedModificationCount;
 
     /**
      * @param screenContext image screen model to be displayed. This reference is owned and disposed by this screen.
@@ -38,25 +57,113 @@ public class ImageScreen implements TransformableScreen {
         return imageFragments;
     }
 
+    /**
+     * @return counters of items drawn and culled in the last frame
+     */
+    public RenderStatistics getRenderStatistics() {
+        return renderStatistics;
+    }
+
+    /**
+     * Selects between fragments baked into offscreen atlas and fragments drawn as meshes textured by background.
+     */
+    public void setFragmentRenderMode(FragmentRenderMode mode) {
+        imageFragments.setFragmentRenderMode(mode);
+    }
+
+    /**
+     * @param screenPixels tolerance of path simplification applied before fragment is cut out, 0 disables it
+     */
+    public void setPathSimplifyTolerance(float screenPixels) {
+        selectionRenderer.setSimplifyTolerance(screenPixels);
+    }
+
+    /**
+     * Selects between picking fragments on GPU by rendering their ids and picking on CPU by polygon tests.
+     */
+    public void setGpuPicking(boolean isGpuPicking) {
+        imageFragments.setGpuPicking(isGpuPicking);
+    }
+
+    /**
+     * Replaces background with the same image at higher resolution, e.g. when image was shown downsampled
+     * before full decode finished. Must be called on GL thread. This screen takes ownership of the background.
+     */
+    public void setBackground(TiledTexture background) {
+        imageFragments.onBackgroundChanged();
+        screenContext.setBackground(background);
+        layerCache.invalidate();
+    }
+
+    /**
+     * Removes selected fragment. Must be called on GL thread, like {@link #undo()} and {@link #redo()}.
+     *
+     * @return false if no fragment is selected
+     */
+    public boolean deleteSelectedFragment() {
+        return imageFragments.deleteCurrent();
+    }
+
+    /**
+     * @return false if there was nothing to undo
+     */
+    public boolean undo() {
+        return imageFragments.undo();
+    }
+
+    /**
+     * @return false if there was nothing to redo
+     */
+    public boolean redo() {
+        return imageFragments.redo();
+    }
+
+    /**
+     * Writes image composed of background and fragments as PNG at resolution of the background textures and
+     * closes output stream. Must be called on GL thread, export runs when returned observable is subscribed,
+     * compression does not block rendering.
+     *
+     * @return number of rows written so far
+     */
+    public Observable<Integer> exportImage(OutputStream out) {
+        return imageFragments.createExporter().export(out);
+    }
+
+    /**
+     * Writes every fragment as separate transparent PNG, cropped to its bounds. Must be called on GL thread,
+     * export runs when returned observable is subscribed.
+     *
+     * @return number of fragments written so far
+     */
+    public Observable<Integer> exportFragments(FragmentExporter.OutputProvider provider) {
+        return imageFragments.createFragmentExporter().export(provider);
+    }
+
     @Override
     public void create() {
-        batch = new SpriteBatch();
+        batch = new PolygonSpriteBatch();
         batch.disableBlending();
-        shapeRenderer = new ShapeRenderer();
     }
 
     @Override
     public void resize(int width, int height) {
+        batch.getProjectionMatrix().setToOrtho2D(0, 0, width, height);
+        projection.setToOrtho2D(0, 0, width, height);
+        culler.setViewport(0, 0, width, height);
+        layerCache.resize(width, height);
         int imgWidth = screenContext.getBackground().getWidth();
         int imgHeight = screenContext.getBackground().getHeight();
         float scale = Math.min((float) width / (float) imgWidth,
                 (float) height / (float) imgHeight);
         screenContext.resetTransformations();
-        screenContext.getWorldTransformation().getInitialTransformation().scale(scale, scale, 1)
-                .translate((width / scale - imgWidth) / 2, (height / scale - imgHeight) / 2, 0);
+        screenContext.getWorldTransformation().getInitialTransformation().scale(scale, scale)
+                .translate((width / scale - imgWidth) / 2, (height / scale - imgHeight) / 2);
         resetTransformation();
     }
 
+    /**
+     * Must be called on GL thread, see {@link ImageGdxCore#getTransformationInput()}.
+     */
     @Override
     public void applyTransformation(TouchEventState state, Matrix3 matrix3) {
         Transformable toTransform = imageFragments.getCurrentFragment();
@@ -66,15 +173,12 @@ public class ImageScreen implements TransformableScreen {
             TRANSFORM.apply(screenContext.getScreenTransformation(), state, matrix3);
             setupWorldTransformation();
         }
-        Gdx.graphics.requestRendering();
-
     }
 
     @Override
     public void resetTransformation() {
         screenContext.getScreenTransformation().idt();
         setupWorldTransformation();
-        Gdx.graphics.requestRendering();
     }
 
     private void setupWorldTransformation() {
@@ -83,7 +187,13 @@ public class ImageScreen implements TransformableScreen {
 
     @Override
     public void prerender() {
+        selectionRenderer.update();
         imageFragments.prerender();
+        int modificationCount = screenContext.getOperationLog().getModificationCount();
+        if (modificationCount != savedModificationCount) {
+            savedModificationCount = modificationCount;
+            screenContext.saveChanges();
+        }
     }
 
     @Override
@@ -94,36 +204,98 @@ public class ImageScreen implements TransformableScreen {
     }
 
     private void renderImage() {
-        batch.setTransformMatrix(screenContext.getWorldTransformation().getTransformation());
+        renderStatistics.reset();
+        Affine2 worldMatrix = screenContext.getWorldTransformation().getTransformation();
+        updateMipMaps(worldMatrix);
+        ImageFragment currentFragment = imageFragments.getCurrentFragment();
+        if (currentFragment == null || !layerCache.canCache()) {
+            layerCache.release();
+            batch.begin();
+            renderBackground(worldMatrix);
+            imageFragments.render(batch, culler, renderStatistics);
+            batch.end();
+            return;
+        }
+        int version = imageFragments.getVersion();
+        if (!layerCache.isValid(worldMatrix, currentFragment, version)) {
+            renderLayers(worldMatrix);
+            layerCache.validate(worldMatrix, currentFragment, version);
+        }
         batch.begin();
-        Texture background = screenContext.getBackground();
-        batch.draw(background, 0, 0, background.getWidth(), background.getHeight());
-        imageFragments.render(batch);
+        layerCache.drawUnder(batch);
+        imageFragments.renderCurrent(batch, culler, renderStatistics);
+        layerCache.drawOver(batch);
         batch.end();
     }
 
+    /**
+     * Draws visible tiles, leaves batch in screen coordinates with blending enabled.
+     */
+    private void renderBackground(Affine2 worldMatrix) {
+        batch.setTransformMatrix(screenContext.getWorldTransformation().getMatrix());
+        batch.disableBlending();
+        Array<TiledTexture.Tile> tiles = screenContext.getBackground().getTiles();
+        for (int i = 0; i < tiles.size; ++i) {
+            TiledTexture.Tile tile = tiles.get(i);
+            boolean isVisible = culler.isVisible(worldMatrix, tile.getX(), tile.getY(), tile.getWidth(), tile.getHeight(), 0);
+            renderStatistics.onTile(isVisible);
+            if (isVisible) tile.draw(batch);
+        }
+        batch.setTransformMatrix(identity);
+        batch.enableBlending();
+    }
+
+    /**
+     * Renders everything except current fragment into layer cache, so moving current fragment
+     * does not redraw background and other fragments.
+     */
+    private void renderLayers(Affine2 worldMatrix) {
+        layerCache.beginUnder();
+        batch.begin();
+        renderBackground(worldMatrix);
+        LayerCache.setLayerBlending(batch);
+        imageFragments.renderBelowCurrent(batch, culler, renderStatistics);
+        batch.end();
+        layerCache.endUnder();
+
+        layerCache.beginOver();
+        batch.begin();
+        LayerCache.setLayerBlending(batch);
+        imageFragments.renderAboveCurrent(batch, culler, renderStatistics);
+        batch.end();
+        layerCache.endOver();
+    }
+
+    /**
+     * Mip maps are built when image is first zoomed out below its original resolution.
+     */
+    private void updateMipMaps(Affine2 worldMatrix) {
+        boolean isMinified = LevelOfDetail.getScale(worldMatrix) < 1f;
+        if (isMinified) screenContext.getBackground().useMipMaps();
+        screenContext.getFragmentAtlas().updateMipMaps(isMinified);
+    }
+
     private void renderShapes() {
-        shapeRenderer.setTransformMatrix(screenContext.getWorldTransformation().getTransformation());
-        shapeRenderer.begin(ShapeRenderer.ShapeType.Line);
-        shapeRenderer.setColor(Color.RED);
-        selectionRenderer.render(shapeRenderer);
-        shapeRenderer.end();
+        shapesMatrix.set(projection).mul(screenContext.getWorldTransformation().getMatrix());
+        selectionRenderer.render(shapesMatrix, Color.RED);
     }
 
     @Override
     public void resume() {
+        selectionRenderer.invalidate();
     }
 
     @Override
     public void pause() {
+        screenContext.saveChanges();
     }
 
     @Override
     public void dispose() {
+        imageFragments.dispose();
         screenContext.dispose();
+        layerCache.dispose();
         batch.dispose();
-        shapeRenderer.dispose();
-        imageFragments.dispose();
         selectionRenderer.dispose();
     }
 }
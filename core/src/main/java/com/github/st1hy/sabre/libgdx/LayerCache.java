@@ -0,0 +1,156 @@
+package com.github.st1hy.sabre.libgdx;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.graphics.GL20;
+import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.g2d.Batch;
+import com.badlogic.gdx.graphics.glutils.FrameBuffer;
+import com.badlogic.gdx.math.Affine2;
+import com.badlogic.gdx.utils.Disposable;
+
+/**
+ * Screen sized snapshots of everything drawn below and above the fragment being moved.
+ * <p>
+ * Layers are rendered with premultiplied alpha into transparent buffers, so they can be composited
+ * over screen clear color in the same order they were drawn. Cache is valid for single world transformation,
+ * selected object and content version.
+ */
+public class LayerCache implements Disposable {
+    private FrameBuffer under, over;
+    private int width, height;
+
+    private final Affine2 cachedWorld = new Affine2();
+    private Object cachedSelection = null;
+    private int cachedVersion;
+    private boolean isValid = false;
+
+    public void resize(int width, int height) {
+        if (this.width == width && this.height == height) return;
+        this.width = width;
+        this.height = height;
+        release();
+    }
+
+    /**
+     * @return true if layers were rendered for the same world transformation, selection and content version
+     */
+    public boolean isValid(Affine2 world, Object selection, int version) {
+        return isValid && selection == cachedSelection && version == cachedVersion && isSame(world, cachedWorld);
+    }
+
+    private static boolean isSame(Affine2 a, Affine2 b) {
+        return a.m00 == b.m00 && a.m01 == b.m01 && a.m02 == b.m02
+                && a.m10 == b.m10 && a.m11 == b.m11 && a.m12 == b.m12;
+    }
+
+    /**
+     * @return false if layers cannot be created for current screen size
+     */
+    public boolean canCache() {
+        return width > 0 && height > 0;
+    }
+
+    public void invalidate() {
+        isValid = false;
+        cachedSelection = null;
+    }
+
+    /**
+     * Marks layers as rendered for given key. Called after both layers were drawn.
+     */
+    public void validate(Affine2 world, Object selection, int version) {
+        cachedWorld.set(world);
+        cachedSelection = selection;
+        cachedVersion = version;
+        isValid = true;
+    }
+
+    /**
+     * Binds and clears layer below the selection. Batch must not be drawing.
+     */
+    public void beginUnder() {
+        if (under == null) under = createBuffer();
+        begin(under);
+    }
+
+    /**
+     * Binds and clears layer above the selection. Batch must not be drawing.
+     */
+    public void beginOver() {
+        if (over == null) over = createBuffer();
+        begin(over);
+    }
+
+    private static void begin(FrameBuffer buffer) {
+        buffer.begin();
+        Gdx.gl.glClearColor(0f, 0f, 0f, 0f);
+        Gdx.gl.glClear(GL20.GL_COLOR_BUFFER_BIT);
+    }
+
+    public void endUnder() {
+        under.end();
+    }
+
+    public void endOver() {
+        over.end();
+    }
+
+    /**
+     * Sets blending of translucent content drawn into a layer, so layer color stays premultiplied by alpha.
+     * Batch must be drawing.
+     */
+    public static void setLayerBlending(Batch batch) {
+        batch.flush();
+        batch.enableBlending();
+        batch.setBlendFunction(-1, -1);
+        Gdx.gl.glBlendFuncSeparate(GL20.GL_SRC_ALPHA, GL20.GL_ONE_MINUS_SRC_ALPHA, GL20.GL_ONE, GL20.GL_ONE_MINUS_SRC_ALPHA);
+    }
+
+    /**
+     * Batch must be drawing in screen coordinates.
+     */
+    public void drawUnder(Batch batch) {
+        draw(batch, under);
+    }
+
+    /**
+     * Batch must be drawing in screen coordinates.
+     */
+    public void drawOver(Batch batch) {
+        draw(batch, over);
+    }
+
+    private void draw(Batch batch, FrameBuffer buffer) {
+        batch.enableBlending();
+        batch.setBlendFunction(GL20.GL_ONE, GL20.GL_ONE_MINUS_SRC_ALPHA);
+        batch.draw(buffer.getColorBufferTexture(), 0, 0, width, height, 0, 0, width, height, false, true);
+        batch.setBlendFunction(GL20.GL_SRC_ALPHA, GL20.GL_ONE_MINUS_SRC_ALPHA);
+    }
+
+    private FrameBuffer createBuffer() {
+        FrameBuffer buffer = new FrameBuffer(Pixmap.Format.RGBA8888, width, height, false);
+        buffer.getColorBufferTexture().setFilter(Texture.TextureFilter.Nearest, Texture.TextureFilter.Nearest);
+        return buffer;
+    }
+
+    /**
+     * Releases layer buffers, they are created again when needed.
+     */
+    public void release() {
+        if (under != null) {
+            under.dispose();
+            under = null;
+        }
+        if (over != null) {
+            over.dispose();
+            over = null;
+        }
+        invalidate();
+    }
+
+    @Override
+    public void dispose() {
+        release();
+    }
+}
@@ -0,0 +1,52 @@
+package com.github.st1hy.sabre.libgdx;
+
+/**
+ * Counters of items drawn and skipped by viewport culling in the last frame.
+ */
+public class RenderStatistics {
+    private int drawnTiles, culledTiles;
+    private int drawnFragments, culledFragments;
+
+    public void reset() {
+        drawnTiles = 0;
+        culledTiles = 0;
+        drawnFragments = 0;
+        culledFragments = 0;
+    }
+
+    public void onTile(boolean drawn) {
+        if (drawn) drawnTiles++;
+        else culledTiles++;
+    }
+
+    public void onFragment(boolean drawn) {
+        if (drawn) drawnFragments++;
+        else culledFragments++;
+    }
+
+    public int getDrawnTiles() {
+        return drawnTiles;
+    }
+
+    public int getCulledTiles() {
+        return culledTiles;
+    }
+
+    public int getDrawnFragments() {
+        return drawnFragments;
+    }
+
+    public int getCulledFragments() {
+        return culledFragments;
+    }
+
+    @Override
+    public String toString() {
+        return "RenderStatistics{" +
+                "drawnTiles=" + drawnTiles +
+                ", culledTiles=" + culledTiles +
+                ", drawnFragments=" + drawnFragments +
+                ", culledFragments=" + culledFragments +
+                '}';
+    }
+}
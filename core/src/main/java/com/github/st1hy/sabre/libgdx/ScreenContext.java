@@ -1,31 +1,57 @@
 package com.github.st1hy.sabre.libgdx;
 
 import com.badlogic.gdx.Gdx;
-import com.badlogic.gdx.graphics.Texture;
 import com.badlogic.gdx.utils.Array;
 import com.badlogic.gdx.utils.Json;
+import com.github.st1hy.coregdx.TiledTexture;
 import com.github.st1hy.coregdx.Transformation;
 import com.github.st1hy.sabre.libgdx.fragments.Elevation;
+import com.github.st1hy.sabre.libgdx.fragments.FragmentAtlas;
+import com.github.st1hy.sabre.libgdx.fragments.FragmentRenderMode;
+import com.github.st1hy.sabre.libgdx.model.FragmentChange;
 import com.github.st1hy.sabre.libgdx.model.ImageFragmentModel;
+import com.github.st1hy.sabre.libgdx.model.OnSessionChangedListener;
+import com.github.st1hy.sabre.libgdx.model.OperationLog;
 import com.github.st1hy.sabre.libgdx.model.ScreenModel;
+import com.github.st1hy.sabre.libgdx.model.ScreenModelChanges;
+import com.github.st1hy.sabre.libgdx.model.ScreenModelCodec;
 
 public class ScreenContext {
-    private final Texture background;
+    private TiledTexture background;
     private final ScreenModel screenModel;
 
     private final Transformation screenTransformation = new Transformation();
     private final Transformation worldTransformation = new Transformation();
     private final Elevation elevation = new Elevation(Gdx.graphics.getDensity());
+    private final FragmentAtlas fragmentAtlas = new FragmentAtlas();
+    private FragmentRenderMode fragmentRenderMode = FragmentRenderMode.BAKED;
+    private final ScreenModelChanges changes = new ScreenModelChanges();
+    private OnSessionChangedListener sessionListener;
+    private final OperationLog operationLog;
 
-    private ScreenContext(Texture background, ScreenModel screenModel) {
+    private ScreenContext(TiledTexture background, ScreenModel screenModel) {
         this.background = background;
         this.screenModel = screenModel;
+        this.operationLog = new OperationLog(screenModel.getFragmentModels());
     }
 
-    public Texture getBackground() {
+    public TiledTexture getBackground() {
         return background;
     }
 
+    /**
+     * Replaces background with the same image at different resolution, previous background is disposed.
+     *
+     * @throws IllegalArgumentException if image size differs, fragments would not match it
+     */
+    public void setBackground(TiledTexture background) {
+        if (background.getWidth() != this.background.getWidth() || background.getHeight() != this.background.getHeight()) {
+            throw new IllegalArgumentException("Background size changed: " + background.getWidth() + "x" + background.getHeight());
+        }
+        this.background.dispose();
+        this.background = background;
+    }
+
     public Array<ImageFragmentModel> getFragmentModels() {
         return screenModel.getFragmentModels();
     }
@@ -58,25 +84,89 @@ public class ScreenContext {
         return elevation;
     }
 
+    /**
+     * @return shared texture pages of baked fragments
+     */
+    public FragmentAtlas getFragmentAtlas() {
+        return fragmentAtlas;
+    }
+
+    public FragmentRenderMode getFragmentRenderMode() {
+        return fragmentRenderMode;
+    }
+
+    /**
+     * Fragments already prepared for the previous mode must be baked again,
+     * see {@link com.github.st1hy.sabre.libgdx.fragments.ImageFragments#setFragmentRenderMode(FragmentRenderMode)}.
+     */
+    public void setFragmentRenderMode(FragmentRenderMode fragmentRenderMode) {
+        this.fragmentRenderMode = fragmentRenderMode;
+    }
+
+    /**
+     * @return undo and redo history of fragments
+     */
+    public OperationLog getOperationLog() {
+        return operationLog;
+    }
+
+    public void setOnSessionChangedListener(OnSessionChangedListener sessionListener) {
+        this.sessionListener = sessionListener;
+    }
+
+    /**
+     * Current fragments are treated as saved, only later changes are passed to session listener.
+     */
+    public void markSaved() {
+        changes.markSaved(screenModel.getFragmentModels());
+    }
+
+    /**
+     * Passes fragments changed since last call to session listener. Must be called on GL thread.
+     */
+    public void saveChanges() {
+        if (sessionListener == null) return;
+        Array<FragmentChange> changed = changes.collect(screenModel.getFragmentModels());
+        if (changed.size > 0) sessionListener.onSessionChanged(changed);
+    }
+
     public void dispose() {
         background.dispose();
+        fragmentAtlas.dispose();
     }
 
-    public static ScreenContext newScreenContext(Texture background) {
+    public static ScreenContext newScreenContext(TiledTexture background) {
         ScreenModel screenModel = new ScreenModel();
         screenModel.setFragmentModels(new Array<ImageFragmentModel>());
         return new ScreenContext(background, screenModel);
     }
 
-    public static ScreenContext createScreenContext(Texture background, String jsonString) {
+    public static ScreenContext createScreenContext(TiledTexture background, String jsonString) {
         if (jsonString == null) return newScreenContext(background);
-        Json json = new Json();
-        ScreenModel screenModel = json.fromJson(ScreenModel.class, jsonString);
+        return new ScreenContext(background, ScreenModelCodec.decodeJson(jsonString));
+    }
+
+    public static ScreenContext createScreenContext(TiledTexture background, ScreenModel screenModel) {
         return new ScreenContext(background, screenModel);
     }
 
+    /**
+     * @param data screen model written by {@link #toBytes()}, json string in UTF-8 is accepted too
+     */
+    public static ScreenContext createScreenContext(TiledTexture background, byte[] data) {
+        if (data == null) return newScreenContext(background);
+        return new ScreenContext(background, ScreenModelCodec.decode(data));
+    }
+
     public String toJson() {
         Json json = new Json();
         return json.toJson(screenModel);
     }
+
+    /**
+     * @return screen model in compact binary form, see {@link ScreenModelCodec}
+     */
+    public byte[] toBytes() {
+        return ScreenModelCodec.encode(screenModel);
+    }
 }
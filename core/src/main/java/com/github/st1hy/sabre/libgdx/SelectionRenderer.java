@@ -1,70 +1,229 @@
 package com.github.st1hy.sabre.libgdx;
 
 import com.badlogic.gdx.Gdx;
-import com.badlogic.gdx.graphics.glutils.ShapeRenderer;
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.math.Matrix4;
 import com.badlogic.gdx.math.Vector2;
-import com.badlogic.gdx.math.Vector3;
 import com.badlogic.gdx.utils.FloatArray;
+import com.badlogic.gdx.utils.IntArray;
+import com.github.st1hy.coregdx.LevelOfDetail;
+import com.github.st1hy.coregdx.LineStripBuffer;
 import com.github.st1hy.coregdx.OnPathChangedListener;
+import com.github.st1hy.coregdx.PathResampler;
+import com.github.st1hy.coregdx.PathSimplifier;
 import com.github.st1hy.coregdx.TouchEventState;
 import com.github.st1hy.sabre.libgdx.fragments.ImageFragmentCreator;
 
+/**
+ * Collects path drawn by user and cuts new fragment out of it when the path ends.
+ * <p>
+ * Path arrives on touch thread in screen coordinates and is handed over to GL thread through double buffered
+ * queue: touch thread appends points and path starts and ends under lock, GL thread swaps the buffers once per
+ * frame and owns the path from there, so GL thread never reads array that is being appended to. Conversion into
+ * image coordinates and resampling happen on GL thread, where world transformation is changed.
+ */
 public class SelectionRenderer implements OnPathChangedListener {
+    private static final float DEFAULT_SIMPLIFY_TOLERANCE = 1f;
+    private static final float DEFAULT_SAMPLE_SPACING = 2f;
+    private static final int PATH_START = 0, PATH_END = 1, RESAMPLED_PATH_START = 2;
+    private static final int MARK_TYPE_BITS = 2, MARK_TYPE_MASK = 3;
+
     private final ScreenContext model;
     private final ImageFragmentCreator imageFragmentCreator;
+    private final PathSimplifier pathSimplifier = new PathSimplifier();
+    private final PathResampler pathResampler = new PathResampler();
+    private float simplifyTolerance = DEFAULT_SIMPLIFY_TOLERANCE;
+    private float sampleSpacing = DEFAULT_SAMPLE_SPACING;
 
+    /**
+     * Path owned by GL thread.
+     */
     private final FloatArray polyLineArray = new FloatArray();
+    private final LineStripBuffer lineBuffer = new LineStripBuffer();
     private final Vector2 tempVector2 = new Vector2();
-    private final Vector3 tempVector3 = new Vector3();
+    private boolean isResampling = false;
+
+    private final Object pendingLock = new Object();
+    /**
+     * Points in screen coordinates received since last frame, guarded by pending lock.
+     */
+    private FloatArray pendingPoints = new FloatArray();
+    /**
+     * Path starts and ends received since last frame, guarded by pending lock. Every mark is position
+     * in pending points shifted left by {@link #MARK_TYPE_BITS}, with {@link #PATH_START}, {@link #PATH_END}
+     * or {@link #RESAMPLED_PATH_START} in the lowest bits.
+     */
+    private IntArray pendingMarks = new IntArray();
+    private FloatArray drainedPoints = new FloatArray();
+    private IntArray drainedMarks = new IntArray();
 
     public SelectionRenderer(ScreenContext model, ImageFragmentCreator imageFragmentCreator) {
         this.model = model;
         this.imageFragmentCreator = imageFragmentCreator;
     }
 
-    public void render(ShapeRenderer renderer) {
+    /**
+     * @param screenPixels largest distance in screen pixels by which simplified path may differ from drawn path,
+     *                     0 disables simplification
+     */
+    public void setSimplifyTolerance(float screenPixels) {
+        this.simplifyTolerance = screenPixels;
+    }
+
+    /**
+     * @param screenPixels distance between points of path received in batches, measured in screen pixels
+     *                     when the path is started and kept constant in image space for the rest of the path
+     */
+    public void setSampleSpacing(float screenPixels) {
+        this.sampleSpacing = screenPixels;
+    }
+
+    /**
+     * Takes over path received since last frame. Ended path is cut out as new fragment.
+     * Must be called on GL thread before frame is rendered.
+     */
+    public void update() {
+        synchronized (pendingLock) {
+            if (pendingPoints.size == 0 && pendingMarks.size == 0) return;
+            FloatArray points = pendingPoints;
+            pendingPoints = drainedPoints;
+            drainedPoints = points;
+            IntArray marks = pendingMarks;
+            pendingMarks = drainedMarks;
+            drainedMarks = marks;
+        }
+        int mark = 0;
+        for (int i = 0; i <= drainedPoints.size; i += 2) {
+            while (mark < drainedMarks.size && drainedMarks.get(mark) >> MARK_TYPE_BITS == i) {
+                switch (drainedMarks.get(mark) & MARK_TYPE_MASK) {
+                    case PATH_START:
+                        startPath(false);
+                        break;
+                    case RESAMPLED_PATH_START:
+                        startPath(true);
+                        break;
+                    case PATH_END:
+                        if (isResampling) pathResampler.finish(polyLineArray);
+                        closePath();
+                        break;
+                }
+                mark++;
+            }
+            if (i + 1 < drainedPoints.size) {
+                addPoint(screenToWorldCoordinates(drainedPoints.get(i), drainedPoints.get(i + 1)));
+            }
+        }
+        drainedPoints.clear();
+        drainedMarks.clear();
+    }
+
+    /**
+     * Uploads points added since last frame and draws the path. Must be called on GL thread.
+     *
+     * @param projTrans transformation from image coordinates to clip space
+     */
+    public void render(Matrix4 projTrans, Color color) {
         if (polyLineArray.size < 4) return;
-        renderer.polyline(polyLineArray.items, 0, polyLineArray.size);
+        lineBuffer.update(polyLineArray);
+        lineBuffer.draw(projTrans, color);
     }
 
+    /**
+     * Called when GL context may have been recreated.
+     */
+    public void invalidate() {
+        lineBuffer.invalidate();
+    }
 
     public void dispose() {
         polyLineArray.clear();
         polyLineArray.shrink();
+        lineBuffer.dispose();
     }
 
     @Override
     public void onPathChanged(TouchEventState state, float x, float y, float oldX, float oldY) {
-        if (state == TouchEventState.STARTED) {
-            polyLineArray.clear();
-            polyLineArray.shrink();
-            add(screenToWorldCoordinates(oldX, oldY));
+        synchronized (pendingLock) {
+            if (state == TouchEventState.STARTED) {
+                mark(PATH_START);
+                add(oldX, oldY);
+            }
+            add(x, y);
+            if (state == TouchEventState.ENDED) mark(PATH_END);
         }
-        add(screenToWorldCoordinates(x, y));
-        if (state == TouchEventState.ENDED) {
-            closePath();
+        Gdx.graphics.requestRendering();
+    }
+
+    @Override
+    public void onPathChanged(TouchEventState state, float[] points, int count) {
+        synchronized (pendingLock) {
+            if (state == TouchEventState.STARTED) mark(RESAMPLED_PATH_START);
+            pendingPoints.addAll(points, 0, count - count % 2);
+            if (state == TouchEventState.ENDED) mark(PATH_END);
         }
         Gdx.graphics.requestRendering();
     }
 
-    private void add(Vector2 vec) {
-        polyLineArray.add(vec.x);
-        polyLineArray.add(vec.y);
+    /**
+     * Must be called with pending lock held.
+     */
+    private void mark(int type) {
+        pendingMarks.add(pendingPoints.size << MARK_TYPE_BITS | type);
+    }
+
+    /**
+     * Must be called with pending lock held.
+     */
+    private void add(float x, float y) {
+        pendingPoints.add(x);
+        pendingPoints.add(y);
+    }
+
+    /**
+     * @param isResampling if true points of the path are resampled to spacing measured at current zoom
+     */
+    private void startPath(boolean isResampling) {
+        polyLineArray.clear();
+        lineBuffer.reset();
+        this.isResampling = isResampling;
+        if (isResampling) {
+            float scale = LevelOfDetail.getScale(model.getWorldTransformation().getTransformation());
+            pathResampler.reset(scale > 0 ? sampleSpacing / scale : sampleSpacing);
+        }
+    }
+
+    private void addPoint(Vector2 point) {
+        if (isResampling) {
+            pathResampler.add(point.x, point.y, polyLineArray);
+        } else {
+            polyLineArray.add(point.x);
+            polyLineArray.add(point.y);
+        }
     }
 
     private void closePath() {
         if (polyLineArray.size < 4) return;
-        tempVector2.set(polyLineArray.get(0), polyLineArray.get(1));
-        add(tempVector2);
-        imageFragmentCreator.addNew(polyLineArray.toArray());
-        polyLineArray.clear();
-        polyLineArray.shrink();
+        polyLineArray.add(polyLineArray.get(0));
+        polyLineArray.add(polyLineArray.get(1));
+        imageFragmentCreator.addNew(simplify(polyLineArray.toArray()));
+        startPath(false);
+    }
+
+    /**
+     * Removes points which do not change shape of the path by more than tolerance, so new fragment
+     * has fewer vertices to triangulate, store and hit test.
+     * Path simplified below a triangle is returned unchanged.
+     */
+    private float[] simplify(float[] path) {
+        float scale = LevelOfDetail.getScale(model.getWorldTransformation().getTransformation());
+        if (scale <= 0) return path;
+        float[] simplified = pathSimplifier.simplify(path, simplifyTolerance / scale);
+        return simplified.length >= 8 ? simplified : path;
     }
 
     private Vector2 screenToWorldCoordinates(float x, float y) {
-        tempVector3.set(x, y, 0);
-        tempVector3.mul(model.getWorldTransformation().getInvTransformation());
-        tempVector2.set(tempVector3.x, tempVector3.y);
+        tempVector2.set(x, y);
+        model.getWorldTransformation().getInvTransformation().applyTo(tempVector2);
         return tempVector2;
     }
 
@@ -0,0 +1,355 @@
+package com.github.st1hy.sabre.libgdx.fragments;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.graphics.GL20;
+import com.badlogic.gdx.graphics.GL30;
+import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.g2d.PolygonSpriteBatch;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.graphics.glutils.FrameBuffer;
+import com.badlogic.gdx.math.Rectangle;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.Disposable;
+import com.github.st1hy.coregdx.GdxLimits;
+import com.github.st1hy.coregdx.LevelOfDetail;
+
+/**
+ * Packs baked fragments into a few large shared frame buffers (pages).
+ * <p>
+ * Fragments located on the same page share one texture, so sprite batch can draw them without
+ * flushing. Space of freed regions is returned to the page and reused by next allocations.
+ * Fragments too large for a shared page receive their own page, which is released together with the fragment.
+ * <p>
+ * Pages are sampled with mip maps up to {@link LevelOfDetail#MAX_LEVEL}. Padding around regions is wide enough
+ * that single texel of the last level never covers two regions. Devices without OpenGL ES 3 cannot limit mip level,
+ * there neighbouring fragments may bleed into each other only when zoomed out further than that.
+ */
+public class FragmentAtlas implements Disposable {
+    private static final int DEFAULT_PAGE_SIZE = 2048;
+    /**
+     * Border around every region, prevents sampling neighbouring fragments in every used mip level.
+     */
+    private static final int PADDING = 1 << LevelOfDetail.MAX_LEVEL;
+
+    private final int pageSize;
+    private final Array<Page> pages = new Array<>();
+    private PolygonSpriteBatch bakeBatch;
+
+    public FragmentAtlas(int pageSize) {
+        this.pageSize = pageSize;
+    }
+
+    public FragmentAtlas() {
+        this(DEFAULT_PAGE_SIZE);
+    }
+
+    /**
+     * @return largest region width or height this atlas can allocate.
+     */
+    public int getMaxRegionSize() {
+        return GdxLimits.getMaxTextureSize() - 2 * PADDING;
+    }
+
+    /**
+     * Reserves space for width x height pixels. Returned region must be released with {@link #free(Region)}.
+     */
+    public Region allocate(int width, int height) {
+        if (width <= 0 || height <= 0 || width > getMaxRegionSize() || height > getMaxRegionSize()) {
+            throw new IllegalArgumentException("Region size out of bounds: " + width + "x" + height);
+        }
+        int paddedWidth = width + 2 * PADDING;
+        int paddedHeight = height + 2 * PADDING;
+        int sharedPageSize = getSharedPageSize();
+        if (paddedWidth > sharedPageSize || paddedHeight > sharedPageSize) {
+            Page page = new Page(paddedWidth, paddedHeight, true);
+            pages.add(page);
+            return page.allocate(paddedWidth, paddedHeight);
+        }
+        for (int i = 0; i < pages.size; ++i) {
+            Page page = pages.get(i);
+            if (page.isDedicated) continue;
+            Region region = page.allocate(paddedWidth, paddedHeight);
+            if (region != null) return region;
+        }
+        Page page = new Page(sharedPageSize, sharedPageSize, false);
+        pages.add(page);
+        return page.allocate(paddedWidth, paddedHeight);
+    }
+
+    private int getSharedPageSize() {
+        return Math.min(pageSize, GdxLimits.getMaxTextureSize());
+    }
+
+    /**
+     * Returns region space to its page. Empty pages are released, except for the first shared page.
+     */
+    public void free(Region region) {
+        Page page = region.page;
+        if (page.isDisposed) return;
+        page.free(region);
+        if (page.isEmpty() && (page.isDedicated || countSharedPages() > 1)) {
+            pages.removeValue(page, true);
+            page.dispose();
+        }
+    }
+
+    private int countSharedPages() {
+        int count = 0;
+        for (int i = 0; i < pages.size; ++i) {
+            if (!pages.get(i).isDedicated) count++;
+        }
+        return count;
+    }
+
+    /**
+     * Rebuilds mip chains of pages changed since last update. Called once per frame, after fragments were baked,
+     * so page with several new fragments is rebuilt once.
+     *
+     * @param create if true mip maps are created for pages which do not have them yet,
+     *               otherwise only existing chains are refreshed
+     */
+    public void updateMipMaps(boolean create) {
+        for (int i = 0; i < pages.size; ++i) {
+            Page page = pages.get(i);
+            if (page.hasMipMaps ? page.isMipMapDirty : create) {
+                page.generateMipMaps();
+            }
+        }
+    }
+
+    public int getPageCount() {
+        return pages.size;
+    }
+
+    /**
+     * @return batch used for rendering fragment content into atlas regions.
+     */
+    public PolygonSpriteBatch getBakeBatch() {
+        if (bakeBatch == null) {
+            bakeBatch = new PolygonSpriteBatch();
+        }
+        return bakeBatch;
+    }
+
+    @Override
+    public void dispose() {
+        for (int i = 0; i < pages.size; ++i) {
+            pages.get(i).dispose();
+        }
+        pages.clear();
+        if (bakeBatch != null) {
+            bakeBatch.dispose();
+            bakeBatch = null;
+        }
+    }
+
+    /**
+     * Part of atlas page reserved for single fragment. Texture coordinates exclude padding.
+     */
+    public static class Region extends TextureRegion {
+        private final Page page;
+        private final Rectangle bounds;
+
+        private Region(Page page, Rectangle bounds) {
+            super(page.fbo.getColorBufferTexture(),
+                    (int) bounds.x + PADDING, (int) bounds.y + PADDING,
+                    (int) bounds.width - 2 * PADDING, (int) bounds.height - 2 * PADDING);
+            this.page = page;
+            this.bounds = bounds;
+        }
+
+        /**
+         * Binds page frame buffer and restricts rendering to this region and its padding, which are cleared.
+         * Viewport is set to whole region.
+         */
+        public void begin() {
+            page.fbo.begin();
+            int x = (int) bounds.x, y = (int) bounds.y;
+            int width = (int) bounds.width, height = (int) bounds.height;
+            Gdx.gl.glEnable(GL20.GL_SCISSOR_TEST);
+            Gdx.gl.glScissor(x, y, width, height);
+            Gdx.gl.glClearColor(0f, 0f, 0f, 0f);
+            Gdx.gl.glClear(GL20.GL_COLOR_BUFFER_BIT);
+            setViewport();
+        }
+
+        /**
+         * Sets viewport to the region without padding.
+         */
+        public void setViewport() {
+            Gdx.gl.glViewport(getRegionX(), getRegionY(), getRegionWidth(), getRegionHeight());
+        }
+
+        /**
+         * Sets viewport to the region together with padding around it.
+         */
+        public void setPaddedViewport() {
+            Gdx.gl.glViewport((int) bounds.x, (int) bounds.y, (int) bounds.width, (int) bounds.height);
+        }
+
+        /**
+         * @return width of border around the region in pixels
+         */
+        public int getPadding() {
+            return PADDING;
+        }
+
+        public void end() {
+            Gdx.gl.glDisable(GL20.GL_SCISSOR_TEST);
+            page.fbo.end();
+            page.isMipMapDirty = true;
+        }
+    }
+
+    /**
+     * Single frame buffer with guillotine packing of free rectangles.
+     */
+    private static class Page implements Disposable {
+        private final FrameBuffer fbo;
+        private final boolean isDedicated;
+        private final Array<Rectangle> freeRectangles = new Array<>();
+        private int usedRegions = 0;
+        private boolean isDisposed = false;
+        private boolean hasMipMaps = false, isMipMapDirty = false;
+
+        Page(int width, int height, boolean isDedicated) {
+            this.isDedicated = isDedicated;
+            fbo = new FrameBuffer(Pixmap.Format.RGBA8888, width, height, false);
+            fbo.getColorBufferTexture().setFilter(Texture.TextureFilter.Linear, Texture.TextureFilter.Linear);
+            fbo.begin();
+            Gdx.gl.glClearColor(0f, 0f, 0f, 0f);
+            Gdx.gl.glClear(GL20.GL_COLOR_BUFFER_BIT);
+            fbo.end();
+            reset();
+        }
+
+        private void reset() {
+            freeRectangles.clear();
+            freeRectangles.add(new Rectangle(0, 0, fbo.getWidth(), fbo.getHeight()));
+        }
+
+        /**
+         * Best short side fit.
+         *
+         * @return null if there is no space left
+         */
+        Region allocate(int width, int height) {
+            Rectangle best = null;
+            float bestShortSide = Float.MAX_VALUE;
+            for (int i = 0; i < freeRectangles.size; ++i) {
+                Rectangle free = freeRectangles.get(i);
+                if (free.width < width || free.height < height) continue;
+                float shortSide = Math.min(free.width - width, free.height - height);
+                if (shortSide < bestShortSide) {
+                    best = free;
+                    bestShortSide = shortSide;
+                }
+            }
+            if (best == null) return null;
+            freeRectangles.removeValue(best, true);
+            split(best, width, height);
+            usedRegions++;
+            return new Region(this, new Rectangle(best.x, best.y, width, height));
+        }
+
+        /**
+         * Splits remaining space along shorter leftover axis.
+         */
+        private void split(Rectangle free, int width, int height) {
+            float leftoverWidth = free.width - width;
+            float leftoverHeight = free.height - height;
+            Rectangle right, top;
+            if (leftoverWidth < leftoverHeight) {
+                right = new Rectangle(free.x + width, free.y, leftoverWidth, height);
+                top = new Rectangle(free.x, free.y + height, free.width, leftoverHeight);
+            } else {
+                right = new Rectangle(free.x + width, free.y, leftoverWidth, free.height);
+                top = new Rectangle(free.x, free.y + height, width, leftoverHeight);
+            }
+            if (right.width > 0 && right.height > 0) freeRectangles.add(right);
+            if (top.width > 0 && top.height > 0) freeRectangles.add(top);
+        }
+
+        void free(Region region) {
+            usedRegions--;
+            if (usedRegions == 0) {
+                reset();
+            } else {
+                freeRectangles.add(new Rectangle(region.bounds));
+                mergeFreeRectangles();
+            }
+        }
+
+        /**
+         * Joins free rectangles sharing whole edge until no more joins are possible.
+         */
+        private void mergeFreeRectangles() {
+            boolean merged = true;
+            while (merged) {
+                merged = false;
+                for (int i = 0; i < freeRectangles.size && !merged; ++i) {
+                    Rectangle a = freeRectangles.get(i);
+                    for (int j = i + 1; j < freeRectangles.size; ++j) {
+                        Rectangle b = freeRectangles.get(j);
+                        if (tryMerge(a, b)) {
+                            freeRectangles.removeIndex(j);
+                            merged = true;
+                            break;
+                        }
+                    }
+                }
+            }
+        }
+
+        private static boolean tryMerge(Rectangle a, Rectangle b) {
+            if (a.y == b.y && a.height == b.height) {
+                if (a.x + a.width == b.x) {
+                    a.width += b.width;
+                    return true;
+                } else if (b.x + b.width == a.x) {
+                    a.x = b.x;
+                    a.width += b.width;
+                    return true;
+                }
+            } else if (a.x == b.x && a.width == b.width) {
+                if (a.y + a.height == b.y) {
+                    a.height += b.height;
+                    return true;
+                } else if (b.y + b.height == a.y) {
+                    a.y = b.y;
+                    a.height += b.height;
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        void generateMipMaps() {
+            Texture texture = fbo.getColorBufferTexture();
+            if (LevelOfDetail.canUseMipMaps(texture.getWidth(), texture.getHeight())) {
+                texture.bind();
+                if (!hasMipMaps && Gdx.gl30 != null) {
+                    Gdx.gl30.glTexParameteri(GL20.GL_TEXTURE_2D, GL30.GL_TEXTURE_MAX_LEVEL, LevelOfDetail.MAX_LEVEL);
+                }
+                Gdx.gl.glGenerateMipmap(GL20.GL_TEXTURE_2D);
+                if (!hasMipMaps) {
+                    texture.setFilter(Texture.TextureFilter.MipMapLinearLinear, Texture.TextureFilter.Linear);
+                }
+            }
+            hasMipMaps = true;
+            isMipMapDirty = false;
+        }
+
+        boolean isEmpty() {
+            return usedRegions == 0;
+        }
+
+        @Override
+        public void dispose() {
+            if (isDisposed) return;
+            isDisposed = true;
+            fbo.dispose();
+        }
+    }
+}
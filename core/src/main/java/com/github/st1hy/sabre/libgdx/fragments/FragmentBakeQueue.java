@@ -0,0 +1,77 @@
+package com.github.st1hy.sabre.libgdx.fragments;
+
+import com.badlogic.gdx.utils.ObjectSet;
+import com.badlogic.gdx.utils.Queue;
+import com.badlogic.gdx.utils.TimeUtils;
+
+/**
+ * Bakes dirty fragments incrementally, spending at most frame budget of time per frame.
+ * Fragment is dirty when it is not baked yet or it was baked with less detail than current zoom needs.
+ * At least one fragment is baked per frame, so queue always drains.
+ * Queued fragments are also kept in a set, so fragments offered again every frame are not searched for in the queue.
+ */
+public class FragmentBakeQueue {
+    private static final float DEFAULT_FRAME_BUDGET_MILLIS = 8f;
+
+    private final Queue<ImageFragment> queue = new Queue<>();
+    private final ObjectSet<ImageFragment> queued = new ObjectSet<>();
+    private long frameBudgetNanos;
+
+    public FragmentBakeQueue() {
+        setFrameBudgetMillis(DEFAULT_FRAME_BUDGET_MILLIS);
+    }
+
+    public void setFrameBudgetMillis(float frameBudgetMillis) {
+        this.frameBudgetNanos = (long) (frameBudgetMillis * 1000000L);
+    }
+
+    /**
+     * Schedules fragment to be baked after all already queued fragments.
+     */
+    public void add(ImageFragment fragment) {
+        if (queued.add(fragment)) {
+            queue.addLast(fragment);
+        }
+    }
+
+    /**
+     * Schedules fragment to be baked before any other fragment.
+     */
+    public void addFirst(ImageFragment fragment) {
+        if (!queued.add(fragment)) queue.removeValue(fragment, true);
+        queue.addFirst(fragment);
+    }
+
+    public void remove(ImageFragment fragment) {
+        if (queued.remove(fragment)) queue.removeValue(fragment, true);
+    }
+
+    /**
+     * Must be called from GL thread outside of any batch.
+     *
+     * @return number of fragments baked, fragments which did not need baking anymore are dropped without counting
+     */
+    public int process() {
+        long start = TimeUtils.nanoTime();
+        int baked = 0;
+        while (queue.size > 0) {
+            ImageFragment fragment = queue.removeFirst();
+            queued.remove(fragment);
+            if (fragment.needsBaking()) {
+                fragment.bake();
+                baked++;
+            }
+            if (TimeUtils.nanoTime() - start >= frameBudgetNanos) break;
+        }
+        return baked;
+    }
+
+    public int size() {
+        return queue.size;
+    }
+
+    public void clear() {
+        queue.clear();
+        queued.clear();
+    }
+}
@@ -0,0 +1,429 @@
+package com.github.st1hy.sabre.libgdx.fragments;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.GL20;
+import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.graphics.g2d.PolygonSpriteBatch;
+import com.badlogic.gdx.graphics.glutils.FrameBuffer;
+import com.badlogic.gdx.math.Affine2;
+import com.badlogic.gdx.math.Intersector;
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.math.Rectangle;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.BufferUtils;
+import com.github.st1hy.coregdx.PngStreamEncoder;
+import com.github.st1hy.coregdx.TiledTexture;
+import com.github.st1hy.sabre.libgdx.LayerCache;
+import com.github.st1hy.sabre.libgdx.ScreenContext;
+import com.github.st1hy.sabre.libgdx.model.ImageFragmentModel;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+import rx.Observable;
+import rx.Scheduler;
+import rx.Subscriber;
+import rx.concurrency.GdxScheduler;
+import rx.exceptions.Exceptions;
+import rx.functions.Action0;
+import rx.functions.Func0;
+import rx.functions.Func1;
+import rx.functions.Func2;
+import rx.schedulers.Schedulers;
+
+/**
+ * Writes every fragment as separate transparent PNG, in image coordinates and without its transformation.
+ * <p>
+ * Fragment is cropped to its polygon bounds within the image, at resolution of the background textures.
+ * Pixels are drawn and read back on GL thread in horizontal strips of at most {@link #STRIP_BYTES} bytes,
+ * every strip is compressed on worker thread of the fragment before the next strip is drawn. Up to
+ * {@link #MAX_WORKERS} fragments are exported at once, so memory used for pixels is bounded by
+ * {@link #MAX_WORKERS} strips regardless of fragment size and count.
+ */
+public class FragmentExporter {
+    private static final int MAX_WORKERS = 4;
+    private static final int BYTES_PER_PIXEL = 4;
+    static final int STRIP_BYTES = 1024 * 1024;
+    private static final float COLOR_WHITE = Color.WHITE.toFloatBits();
+    private static final Affine2 IDENTITY = new Affine2();
+
+    /**
+     * Opens output of single fragment. Called on worker thread, stream is closed by exporter.
+     */
+    public interface OutputProvider {
+        /**
+         * @param index position of fragment in drawing order
+         */
+        OutputStream open(int index) throws IOException;
+    }
+
+    private final ScreenContext model;
+    private final Array<ImageFragmentModel> models;
+    private final int workerCount;
+
+    /**
+     * Fragments present at the time exporter is created are exported. Must be created on GL thread.
+     */
+    FragmentExporter(ScreenContext model) {
+        this.model = model;
+        this.models = new Array<>(model.getFragmentModels());
+        this.workerCount = Math.max(1, Math.min(MAX_WORKERS, Runtime.getRuntime().availableProcessors()));
+    }
+
+    public int getFragmentCount() {
+        return models.size;
+    }
+
+    /**
+     * Export starts when observable is subscribed and stops when it is unsubscribed.
+     *
+     * @return number of fragments written so far, starting from 0, completes when all fragments were written
+     */
+    public Observable<Integer> export(final OutputProvider provider) {
+        return Observable.defer(new Func0<Observable<Integer>>() {
+            @Override
+            public Observable<Integer> call() {
+                final ReadBack readBack = new ReadBack();
+                return Observable.range(0, models.size)
+                        .flatMap(new Func1<Integer, Observable<Integer>>() {
+                            @Override
+                            public Observable<Integer> call(Integer index) {
+                                return exportFragment(index, provider, readBack);
+                            }
+                        }, workerCount)
+                        .scan(0, new Func2<Integer, Integer, Integer>() {
+                            @Override
+                            public Integer call(Integer written, Integer fragment) {
+                                return written + 1;
+                            }
+                        })
+                        .doOnUnsubscribe(new Action0() {
+                            @Override
+                            public void call() {
+                                Gdx.app.postRunnable(new Runnable() {
+                                    @Override
+                                    public void run() {
+                                        readBack.release();
+                                    }
+                                });
+                            }
+                        });
+            }
+        });
+    }
+
+    /**
+     * Strips of the fragment are drawn on GL thread and written on worker of the fragment one after another,
+     * so single strip buffer is reused. Worker is released when fragment export ends, work scheduled on it
+     * afterwards is dropped.
+     */
+    private Observable<Integer> exportFragment(final int index, final OutputProvider provider,
+                                               final ReadBack readBack) {
+        return Observable.defer(new Func0<Observable<Integer>>() {
+            @Override
+            public Observable<Integer> call() {
+                final Scheduler.Worker worker = Schedulers.io().createWorker();
+                final FragmentWriter writer = new FragmentWriter(index, provider);
+                return Observable.defer(new Func0<Observable<FragmentArea>>() {
+                    @Override
+                    public Observable<FragmentArea> call() {
+                        return Observable.just(readBack.prepare(models.get(index)));
+                    }
+                }).subscribeOn(GdxScheduler.get())
+                        .flatMap(new Func1<FragmentArea, Observable<Integer>>() {
+                            @Override
+                            public Observable<Integer> call(FragmentArea area) {
+                                return exportStrips(area, readBack, writer, worker);
+                            }
+                        })
+                        .concatWith(onWorker(worker, new Func0<Integer>() {
+                            @Override
+                            public Integer call() {
+                                writer.finish();
+                                return index;
+                            }
+                        }))
+                        .last()
+                        .doOnUnsubscribe(new Action0() {
+                            @Override
+                            public void call() {
+                                worker.unsubscribe();
+                                writer.stop();
+                            }
+                        });
+            }
+        });
+    }
+
+    private Observable<Integer> exportStrips(final FragmentArea area, final ReadBack readBack,
+                                             final FragmentWriter writer, final Scheduler.Worker worker) {
+        return Observable.range(0, area.stripCount)
+                .concatMap(new Func1<Integer, Observable<Integer>>() {
+                    @Override
+                    public Observable<Integer> call(final Integer strip) {
+                        return Observable.defer(new Func0<Observable<ByteBuffer>>() {
+                            @Override
+                            public Observable<ByteBuffer> call() {
+                                return Observable.just(readBack.read(area, strip));
+                            }
+                        }).subscribeOn(GdxScheduler.get())
+                                .concatMap(new Func1<ByteBuffer, Observable<Integer>>() {
+                                    @Override
+                                    public Observable<Integer> call(final ByteBuffer pixels) {
+                                        return onWorker(worker, new Func0<Integer>() {
+                                            @Override
+                                            public Integer call() {
+                                                writer.write(area, pixels);
+                                                return strip;
+                                            }
+                                        });
+                                    }
+                                });
+                    }
+                });
+    }
+
+    /**
+     * @return observable of single value computed on given worker
+     */
+    private static <T> Observable<T> onWorker(final Scheduler.Worker worker, final Func0<T> func) {
+        return Observable.create(new Observable.OnSubscribe<T>() {
+            @Override
+            public void call(final Subscriber<? super T> subscriber) {
+                subscriber.add(worker.schedule(new Action0() {
+                    @Override
+                    public void call() {
+                        try {
+                            subscriber.onNext(func.call());
+                            subscriber.onCompleted();
+                        } catch (Throwable e) {
+                            Exceptions.throwOrReport(e, subscriber);
+                        }
+                    }
+                }));
+            }
+        });
+    }
+
+    /**
+     * Releases encoder of failed export, its own error would hide the original one.
+     */
+    private static void closeQuietly(PngStreamEncoder encoder) {
+        try {
+            encoder.close();
+        } catch (IOException | RuntimeException ignored) {
+        }
+    }
+
+    private static void copy(ByteBuffer tile, int columns, int rows, ByteBuffer pixels, int width, int x) {
+        int rowBytes = columns * BYTES_PER_PIXEL;
+        for (int row = 0; row < rows; ++row) {
+            tile.limit(row * rowBytes + rowBytes);
+            tile.position(row * rowBytes);
+            pixels.position((row * width + x) * BYTES_PER_PIXEL);
+            pixels.put(tile);
+        }
+    }
+
+    /**
+     * Drawing and reading back of fragments for single export. Used on GL thread only.
+     */
+    private class ReadBack {
+        private PolygonSpriteBatch batch;
+        private FrameBuffer buffer;
+        private ByteBuffer tilePixels;
+        private int tileSize;
+        private boolean isReleased = false;
+
+        /**
+         * @return area of fragment in pixels of background textures, single pixel left transparent if fragment
+         * lies outside of the image
+         */
+        FragmentArea prepare(ImageFragmentModel fragmentModel) {
+            if (isReleased) throw new IllegalStateException("Export was stopped");
+            TiledTexture background = model.getBackground();
+            float pixelWidth = (float) background.getWidth() / background.getTextureWidth();
+            float pixelHeight = (float) background.getHeight() / background.getTextureHeight();
+            int maxStripHeight = TiledTexture.getDefaultTileSize();
+            Rectangle area = new Rectangle();
+            Rectangle image = new Rectangle(0, 0, background.getWidth(), background.getHeight());
+            if (!Intersector.intersectRectangles(fragmentModel.getBounds(), image, area)) {
+                return new FragmentArea(null, 0, 0, 1, 1, pixelWidth, pixelHeight, maxStripHeight);
+            }
+            int x = MathUtils.floor(area.x / pixelWidth);
+            int y = MathUtils.floor(area.y / pixelHeight);
+            int width = Math.max(1, MathUtils.ceil((area.x + area.width) / pixelWidth) - x);
+            int height = Math.max(1, MathUtils.ceil((area.y + area.height) / pixelHeight) - y);
+            FragmentMesh mesh = FragmentMesh.create(fragmentModel.getVertices(), fragmentModel.getTriangles(),
+                    background);
+            return new FragmentArea(mesh, x, y, width, height, pixelWidth, pixelHeight, maxStripHeight);
+        }
+
+        /**
+         * Draws strip of fragment area tile by tile. Strips are numbered from the top of the area.
+         *
+         * @return pixels of the strip, bottom row first
+         */
+        ByteBuffer read(FragmentArea area, int strip) {
+            if (isReleased) throw new IllegalStateException("Export was stopped");
+            ByteBuffer pixels = area.getStripBuffer();
+            pixels.clear();
+            int top = area.getStripTop(strip);
+            int bottom = area.getStripBottom(strip);
+            int rows = top - bottom;
+            // buffer is cleared when allocated, area without mesh stays transparent
+            if (area.mesh != null) {
+                init();
+                for (int tileX = 0; tileX < area.width; tileX += tileSize) {
+                    int columns = Math.min(tileSize, area.width - tileX);
+                    buffer.begin();
+                    Gdx.gl.glClearColor(0f, 0f, 0f, 0f);
+                    Gdx.gl.glClear(GL20.GL_COLOR_BUFFER_BIT);
+                    batch.getProjectionMatrix().setToOrtho2D((area.x + tileX) * area.pixelWidth,
+                            (area.y + bottom) * area.pixelHeight, tileSize * area.pixelWidth,
+                            tileSize * area.pixelHeight);
+                    batch.begin();
+                    LayerCache.setLayerBlending(batch);
+                    area.mesh.draw(batch, IDENTITY, COLOR_WHITE);
+                    batch.end();
+                    tilePixels.clear();
+                    Gdx.gl.glReadPixels(0, 0, columns, rows, GL20.GL_RGBA, GL20.GL_UNSIGNED_BYTE, tilePixels);
+                    buffer.end();
+                    copy(tilePixels, columns, rows, pixels, area.width, tileX);
+                }
+            }
+            pixels.position(0);
+            pixels.limit(rows * area.width * BYTES_PER_PIXEL);
+            return pixels;
+        }
+
+        private void init() {
+            if (batch != null) return;
+            tileSize = TiledTexture.getDefaultTileSize();
+            batch = new PolygonSpriteBatch();
+            buffer = new FrameBuffer(Pixmap.Format.RGBA8888, tileSize, tileSize, false);
+            tilePixels = BufferUtils.newByteBuffer(tileSize * tileSize * BYTES_PER_PIXEL);
+        }
+
+        void release() {
+            isReleased = true;
+            if (batch != null) {
+                batch.dispose();
+                buffer.dispose();
+                batch = null;
+                buffer = null;
+                tilePixels = null;
+            }
+        }
+    }
+
+    /**
+     * Part of the image exported for single fragment, in pixels of background textures.
+     */
+    static class FragmentArea {
+        private final FragmentMesh mesh;
+        private final int x, y, width, height;
+        private final float pixelWidth, pixelHeight;
+        private final int stripHeight, stripCount;
+        private ByteBuffer stripBuffer;
+
+        /**
+         * @param maxStripHeight strip is read back from single frame buffer of this height
+         */
+        FragmentArea(FragmentMesh mesh, int x, int y, int width, int height,
+                     float pixelWidth, float pixelHeight, int maxStripHeight) {
+            this.mesh = mesh;
+            this.x = x;
+            this.y = y;
+            this.width = width;
+            this.height = height;
+            this.pixelWidth = pixelWidth;
+            this.pixelHeight = pixelHeight;
+            int bufferRows = Math.max(1, STRIP_BYTES / (width * BYTES_PER_PIXEL));
+            this.stripHeight = Math.min(height, Math.min(maxStripHeight, bufferRows));
+            this.stripCount = (height + this.stripHeight - 1) / this.stripHeight;
+        }
+
+        int getStripCount() {
+            return stripCount;
+        }
+
+        /**
+         * Strips are numbered from the top of the area.
+         *
+         * @return row above the strip, counted from the bottom of the area
+         */
+        int getStripTop(int strip) {
+            return height - strip * stripHeight;
+        }
+
+        /**
+         * @return lowest row of the strip, counted from the bottom of the area
+         */
+        int getStripBottom(int strip) {
+            return Math.max(0, getStripTop(strip) - stripHeight);
+        }
+
+        /**
+         * Allocated when the first strip is read, so only fragments being exported hold pixels.
+         */
+        private ByteBuffer getStripBuffer() {
+            if (stripBuffer == null) {
+                stripBuffer = BufferUtils.newByteBuffer(width * stripHeight * BYTES_PER_PIXEL);
+            }
+            return stripBuffer;
+        }
+    }
+
+    /**
+     * Encoder of single fragment, shared by its worker and the thread stopping the export.
+     */
+    private static class FragmentWriter {
+        private final int index;
+        private final OutputProvider provider;
+        private PngStreamEncoder encoder;
+        private boolean isStopped = false;
+
+        private FragmentWriter(int index, OutputProvider provider) {
+            this.index = index;
+            this.provider = provider;
+        }
+
+        /**
+         * Output is opened with the first strip. Rows of pixels are read back bottom first, PNG is written
+         * top first.
+         */
+        synchronized void write(FragmentArea area, ByteBuffer pixels) {
+            if (isStopped) throw new IllegalStateException("Export was stopped");
+            try {
+                if (encoder == null) encoder = new PngStreamEncoder(provider.open(index), area.width, area.height);
+                int rowBytes = area.width * BYTES_PER_PIXEL;
+                for (int row = pixels.limit() / rowBytes - 1; row >= 0; --row) {
+                    pixels.limit((row + 1) * rowBytes);
+                    pixels.position(row * rowBytes);
+                    encoder.writeRow(pixels);
+                }
+            } catch (IOException e) {
+                throw Exceptions.propagate(e);
+            }
+        }
+
+        synchronized void finish() {
+            if (isStopped) return;
+            isStopped = true;
+            try {
+                if (encoder != null) encoder.close();
+            } catch (IOException e) {
+                throw Exceptions.propagate(e);
+            }
+        }
+
+        synchronized void stop() {
+            if (isStopped) return;
+            isStopped = true;
+            if (encoder != null) closeQuietly(encoder);
+        }
+    }
+}
@@ -0,0 +1,233 @@
+package com.github.st1hy.sabre.libgdx.fragments;
+
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.g2d.PolygonSpriteBatch;
+import com.badlogic.gdx.math.Affine2;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.FloatArray;
+import com.badlogic.gdx.utils.ShortArray;
+import com.github.st1hy.coregdx.TiledTexture;
+
+import java.util.Arrays;
+
+import static com.badlogic.gdx.graphics.g2d.Batch.C1;
+import static com.badlogic.gdx.graphics.g2d.Batch.U1;
+import static com.badlogic.gdx.graphics.g2d.Batch.V1;
+import static com.badlogic.gdx.graphics.g2d.Batch.X1;
+import static com.badlogic.gdx.graphics.g2d.Batch.Y1;
+
+/**
+ * Triangulated fragment polygon textured directly with background tiles.
+ * <p>
+ * Triangles crossing tile edges are clipped, so every part of the mesh samples single tile texture.
+ * Vertices are kept in image coordinates and transformed on CPU when drawn.
+ */
+class FragmentMesh {
+    private static final int VERTEX_SIZE = 5;
+    /**
+     * Part size limits, well below capacity of default {@link PolygonSpriteBatch}.
+     */
+    private static final int MAX_PART_VERTICES = 1000;
+    private static final int MAX_PART_INDICES = 1500;
+    /**
+     * Work buffer for transformed vertices, meshes are drawn on GL thread only.
+     */
+    private static final float[] transformedVertices = new float[MAX_PART_VERTICES * VERTEX_SIZE];
+
+    private final Array<Part> parts;
+
+    private FragmentMesh(Array<Part> parts) {
+        this.parts = parts;
+    }
+
+    /**
+     * @param vertices  polygon in image coordinates
+     * @param triangles triangulation of the polygon
+     */
+    static FragmentMesh create(float[] vertices, short[] triangles, TiledTexture background) {
+        Array<Part> parts = new Array<>();
+        Builder builder = new Builder(vertices, triangles, parts);
+        Array<TiledTexture.Tile> tiles = background.getTiles();
+        for (int i = 0; i < tiles.size; ++i) {
+            builder.addTile(tiles.get(i));
+        }
+        return new FragmentMesh(parts);
+    }
+
+    /**
+     * Draws mesh with given transformation. Batch transform matrix is expected to be identity.
+     */
+    void draw(PolygonSpriteBatch batch, Affine2 transformation, float packedColor) {
+        Affine2 m = transformation;
+        for (int p = 0; p < parts.size; ++p) {
+            Part part = parts.get(p);
+            float[] vertices = part.vertices;
+            for (int i = 0; i < vertices.length; i += VERTEX_SIZE) {
+                float x = vertices[i + X1];
+                float y = vertices[i + Y1];
+                transformedVertices[i + X1] = m.m00 * x + m.m01 * y + m.m02;
+                transformedVertices[i + Y1] = m.m10 * x + m.m11 * y + m.m12;
+                transformedVertices[i + C1] = packedColor;
+                transformedVertices[i + U1] = vertices[i + U1];
+                transformedVertices[i + V1] = vertices[i + V1];
+            }
+            batch.draw(part.texture, transformedVertices, 0, vertices.length, part.triangles, 0, part.triangles.length);
+        }
+    }
+
+    private static class Part {
+        private final Texture texture;
+        private final float[] vertices;
+        private final short[] triangles;
+
+        private Part(Texture texture, float[] vertices, short[] triangles) {
+            this.texture = texture;
+            this.vertices = vertices;
+            this.triangles = triangles;
+        }
+    }
+
+    /**
+     * Splits triangles between tiles. Triangles lying inside single tile share polygon vertices,
+     * triangles crossing tile edge are clipped (Sutherland-Hodgman) and fanned out.
+     */
+    private static class Builder {
+        private final float[] polygon;
+        private final short[] triangles;
+        private final Array<Part> parts;
+        /**
+         * Index of polygon vertex in current part or -1 if not added yet.
+         */
+        private final int[] remap;
+        private final FloatArray partVertices = new FloatArray();
+        private final ShortArray partTriangles = new ShortArray();
+        private final FloatArray clipIn = new FloatArray(), clipOut = new FloatArray();
+        private TiledTexture.Tile tile;
+
+        Builder(float[] polygon, short[] triangles, Array<Part> parts) {
+            this.polygon = polygon;
+            this.triangles = triangles;
+            this.parts = parts;
+            this.remap = new int[polygon.length / 2];
+        }
+
+        void addTile(TiledTexture.Tile tile) {
+            this.tile = tile;
+            startPart();
+            float left = tile.getX(), bottom = tile.getY();
+            float right = left + tile.getWidth(), top = bottom + tile.getHeight();
+            for (int i = 0; i + 2 < triangles.length; i += 3) {
+                int a = triangles[i], b = triangles[i + 1], c = triangles[i + 2];
+                float minX = Math.min(polygon[2 * a], Math.min(polygon[2 * b], polygon[2 * c]));
+                float maxX = Math.max(polygon[2 * a], Math.max(polygon[2 * b], polygon[2 * c]));
+                float minY = Math.min(polygon[2 * a + 1], Math.min(polygon[2 * b + 1], polygon[2 * c + 1]));
+                float maxY = Math.max(polygon[2 * a + 1], Math.max(polygon[2 * b + 1], polygon[2 * c + 1]));
+                if (maxX <= left || minX >= right || maxY <= bottom || minY >= top) continue;
+                if (minX >= left && maxX <= right && minY >= bottom && maxY <= top) {
+                    addShared(a, b, c);
+                } else {
+                    addClipped(a, b, c, left, bottom, right, top);
+                }
+            }
+            finishPart();
+        }
+
+        private void addShared(int a, int b, int c) {
+            ensureCapacity(3, 3);
+            partTriangles.add(shared(a));
+            partTriangles.add(shared(b));
+            partTriangles.add(shared(c));
+        }
+
+        private short shared(int index) {
+            if (remap[index] < 0) {
+                remap[index] = addVertex(polygon[2 * index], polygon[2 * index + 1]);
+            }
+            return (short) remap[index];
+        }
+
+        private void addClipped(int a, int b, int c, float left, float bottom, float right, float top) {
+            clipIn.clear();
+            addPoint(clipIn, polygon[2 * a], polygon[2 * a + 1]);
+            addPoint(clipIn, polygon[2 * b], polygon[2 * b + 1]);
+            addPoint(clipIn, polygon[2 * c], polygon[2 * c + 1]);
+            clipEdge(0, left, true);
+            clipEdge(0, right, false);
+            clipEdge(1, bottom, true);
+            clipEdge(1, top, false);
+            int count = clipIn.size / 2;
+            if (count < 3) return;
+            ensureCapacity(count, 3 * (count - 2));
+            int first = addVertex(clipIn.get(0), clipIn.get(1));
+            for (int i = 1; i < count; ++i) {
+                addVertex(clipIn.get(2 * i), clipIn.get(2 * i + 1));
+            }
+            for (int i = 1; i + 1 < count; ++i) {
+                partTriangles.add((short) first);
+                partTriangles.add((short) (first + i));
+                partTriangles.add((short) (first + i + 1));
+            }
+        }
+
+        /**
+         * Clips polygon in clipIn against line axis = value, keeping the side above value when isMin
+         * is true or below otherwise. Result replaces clipIn.
+         */
+        private void clipEdge(int axis, float value, boolean isMin) {
+            clipOut.clear();
+            int count = clipIn.size / 2;
+            for (int i = 0; i < count; ++i) {
+                int j = (i + 1) % count;
+                float ax = clipIn.get(2 * i), ay = clipIn.get(2 * i + 1);
+                float bx = clipIn.get(2 * j), by = clipIn.get(2 * j + 1);
+                float ac = axis == 0 ? ax : ay, bc = axis == 0 ? bx : by;
+                boolean aInside = isMin ? ac >= value : ac <= value;
+                boolean bInside = isMin ? bc >= value : bc <= value;
+                if (aInside) addPoint(clipOut, ax, ay);
+                if (aInside != bInside) {
+                    float t = (value - ac) / (bc - ac);
+                    addPoint(clipOut, ax + t * (bx - ax), ay + t * (by - ay));
+                }
+            }
+            clipIn.clear();
+            clipIn.addAll(clipOut);
+        }
+
+        private static void addPoint(FloatArray array, float x, float y) {
+            array.add(x);
+            array.add(y);
+        }
+
+        private int addVertex(float x, float y) {
+            int index = partVertices.size / VERTEX_SIZE;
+            float u = (x - tile.getX()) / tile.getWidth();
+            float v = 1f - (y - tile.getY()) / tile.getHeight();
+            partVertices.add(x);
+            partVertices.add(y);
+            partVertices.add(0f);
+            partVertices.add(u);
+            partVertices.add(v);
+            return index;
+        }
+
+        private void ensureCapacity(int vertices, int indices) {
+            if (partVertices.size / VERTEX_SIZE + vertices > MAX_PART_VERTICES
+                    || partTriangles.size + indices > MAX_PART_INDICES) {
+                finishPart();
+                startPart();
+            }
+        }
+
+        private void startPart() {
+            partVertices.clear();
+            partTriangles.clear();
+            Arrays.fill(remap, -1);
+        }
+
+        private void finishPart() {
+            if (partTriangles.size > 0) {
+                parts.add(new Part(tile.getTexture(), partVertices.toArray(), partTriangles.toArray()));
+            }
+        }
+    }
+}
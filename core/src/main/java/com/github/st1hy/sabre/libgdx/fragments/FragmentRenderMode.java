@@ -0,0 +1,17 @@
+package com.github.st1hy.sabre.libgdx.fragments;
+
+/**
+ * How fragment content is kept and drawn.
+ */
+public enum FragmentRenderMode {
+    /**
+     * Fragment pixels are rendered once into {@link FragmentAtlas} and drawn as a quad.
+     * Costs width x height x 4 bytes of texture memory per fragment, drawing is cheap.
+     */
+    BAKED,
+    /**
+     * Fragment polygon is drawn directly from background tiles as a textured mesh.
+     * No offscreen memory is used, but every frame draws all triangles of the polygon.
+     */
+    MESH
+}
@@ -0,0 +1,163 @@
+package com.github.st1hy.sabre.libgdx.fragments;
+
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.math.Rectangle;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.LongMap;
+import com.badlogic.gdx.utils.ObjectMap;
+
+/**
+ * Uniform grid over fragment bounds in image coordinates.
+ * <p>
+ * Every grid cell lists fragments whose transformed bounds overlap the cell, sorted by z order,
+ * so a point query visits only fragments of single cell, topmost first.
+ * Fragments scaled up to cover very many cells are kept in separate list checked on every query.
+ */
+class FragmentSpatialIndex {
+    private static final float DEFAULT_CELL_SIZE = 256f;
+    private static final int MAX_CELLS_PER_FRAGMENT = 1024;
+
+    private final float cellSize;
+    private final LongMap<Array<Entry>> cells = new LongMap<>();
+    private final Array<Entry> oversized = new Array<>();
+    private final ObjectMap<ImageFragment, Entry> entries = new ObjectMap<>();
+    private final Rectangle tempBounds = new Rectangle();
+    private int nextZOrder = 0;
+
+    FragmentSpatialIndex(float cellSize) {
+        this.cellSize = cellSize;
+    }
+
+    FragmentSpatialIndex() {
+        this(DEFAULT_CELL_SIZE);
+    }
+
+    /**
+     * Adds fragment above all fragments already in the index.
+     */
+    void add(ImageFragment fragment) {
+        Entry entry = new Entry(fragment, nextZOrder++);
+        entries.put(fragment, entry);
+        entry.boundsVersion = fragment.getBoundsVersion();
+        fragment.getBounds(entry.bounds);
+        insert(entry);
+    }
+
+    /**
+     * Files fragment again if its bounds changed since it was added or last updated.
+     */
+    void update(ImageFragment fragment) {
+        Entry entry = entries.get(fragment);
+        if (entry == null || entry.boundsVersion == fragment.getBoundsVersion()) return;
+        entry.boundsVersion = fragment.getBoundsVersion();
+        fragment.getBounds(tempBounds);
+        if (tempBounds.equals(entry.bounds)) return;
+        remove(entry);
+        entry.bounds.set(tempBounds);
+        insert(entry);
+    }
+
+    void remove(ImageFragment fragment) {
+        Entry entry = entries.remove(fragment);
+        if (entry != null) remove(entry);
+    }
+
+    void clear() {
+        cells.clear();
+        oversized.clear();
+        entries.clear();
+        nextZOrder = 0;
+    }
+
+    /**
+     * @param x in image coordinates
+     * @param y in image coordinates
+     * @return topmost fragment containing point or null
+     */
+    ImageFragment pick(float x, float y) {
+        Array<Entry> cell = cells.get(key(cellOf(x), cellOf(y)));
+        int i = cell != null ? cell.size - 1 : -1;
+        int j = oversized.size - 1;
+        while (i >= 0 || j >= 0) {
+            Entry entry;
+            if (j < 0 || i >= 0 && cell.get(i).zOrder > oversized.get(j).zOrder) {
+                entry = cell.get(i--);
+            } else {
+                entry = oversized.get(j--);
+            }
+            if (entry.bounds.contains(x, y) && entry.fragment.isWithinBounds(x, y)) {
+                return entry.fragment;
+            }
+        }
+        return null;
+    }
+
+    private void insert(Entry entry) {
+        Rectangle bounds = entry.bounds;
+        entry.left = cellOf(bounds.x);
+        entry.bottom = cellOf(bounds.y);
+        entry.right = cellOf(bounds.x + bounds.width);
+        entry.top = cellOf(bounds.y + bounds.height);
+        if ((long) (entry.right - entry.left + 1) * (entry.top - entry.bottom + 1) > MAX_CELLS_PER_FRAGMENT) {
+            entry.isOversized = true;
+            insertSorted(oversized, entry);
+            return;
+        }
+        entry.isOversized = false;
+        for (int cx = entry.left; cx <= entry.right; ++cx) {
+            for (int cy = entry.bottom; cy <= entry.top; ++cy) {
+                long key = key(cx, cy);
+                Array<Entry> cell = cells.get(key);
+                if (cell == null) {
+                    cell = new Array<>(true, 4, Entry.class);
+                    cells.put(key, cell);
+                }
+                insertSorted(cell, entry);
+            }
+        }
+    }
+
+    private static void insertSorted(Array<Entry> array, Entry entry) {
+        int index = array.size;
+        while (index > 0 && array.get(index - 1).zOrder > entry.zOrder) index--;
+        array.insert(index, entry);
+    }
+
+    private void remove(Entry entry) {
+        if (entry.isOversized) {
+            oversized.removeValue(entry, true);
+            return;
+        }
+        for (int cx = entry.left; cx <= entry.right; ++cx) {
+            for (int cy = entry.bottom; cy <= entry.top; ++cy) {
+                long key = key(cx, cy);
+                Array<Entry> cell = cells.get(key);
+                if (cell == null) continue;
+                cell.removeValue(entry, true);
+                if (cell.size == 0) cells.remove(key);
+            }
+        }
+    }
+
+    private int cellOf(float coordinate) {
+        return MathUtils.floor(coordinate / cellSize);
+    }
+
+    private static long key(int cx, int cy) {
+        return ((long) cx << 32) | (cy & 0xffffffffL);
+    }
+
+    private static class Entry {
+        private final ImageFragment fragment;
+        private final int zOrder;
+        private final Rectangle bounds = new Rectangle();
+        private int left, bottom, right, top;
+        private int boundsVersion;
+        private boolean isOversized;
+
+        private Entry(ImageFragment fragment, int zOrder) {
+            this.fragment = fragment;
+            this.zOrder = zOrder;
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.github.st1hy.sabre.libgdx.fragments;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.GL20;
+import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.graphics.g2d.PolygonSpriteBatch;
+import com.badlogic.gdx.graphics.glutils.FrameBuffer;
+import com.badlogic.gdx.graphics.glutils.ShaderProgram;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.BufferUtils;
+import com.badlogic.gdx.utils.Disposable;
+import com.github.st1hy.coregdx.ViewportCuller;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Picks fragment by rendering fragment ids as flat colors into 1x1 pixel buffer placed under the tap
+ * and reading that pixel back.
+ * <p>
+ * Fragments are drawn with the same geometry and transformations as on screen, texels with low alpha
+ * are discarded so only area covered by the polygon is hit. Fragments not baked yet have no geometry
+ * to draw, their polygons are tested on CPU instead when they lie above the fragment hit on GPU.
+ * Must be used on GL thread.
+ */
+class GpuFragmentPicker implements Disposable {
+    private static final String VERTEX_SHADER = ""
+            + "attribute vec4 " + ShaderProgram.POSITION_ATTRIBUTE + ";\n"
+            + "attribute vec4 " + ShaderProgram.COLOR_ATTRIBUTE + ";\n"
+            + "attribute vec2 " + ShaderProgram.TEXCOORD_ATTRIBUTE + "0;\n"
+            + "uniform mat4 u_projTrans;\n"
+            + "varying vec4 v_color;\n"
+            + "varying vec2 v_texCoords;\n"
+            + "void main() {\n"
+            + "    v_color = " + ShaderProgram.COLOR_ATTRIBUTE + ";\n"
+            + "    v_color.a = 1.0;\n"
+            + "    v_texCoords = " + ShaderProgram.TEXCOORD_ATTRIBUTE + "0;\n"
+            + "    gl_Position = u_projTrans * " + ShaderProgram.POSITION_ATTRIBUTE + ";\n"
+            + "}\n";
+    private static final String FRAGMENT_SHADER = ""
+            + "#ifdef GL_ES\n"
+            + "precision mediump float;\n"
+            + "#endif\n"
+            + "varying vec4 v_color;\n"
+            + "varying vec2 v_texCoords;\n"
+            + "uniform sampler2D u_texture;\n"
+            + "void main() {\n"
+            + "    if (texture2D(u_texture, v_texCoords).a < 0.5) discard;\n"
+            + "    gl_FragColor = v_color;\n"
+            + "}\n";
+
+    private final ViewportCuller culler = new ViewportCuller();
+    private final Color idColor = new Color();
+    private final ByteBuffer pixel = BufferUtils.newByteBuffer(4);
+    private PolygonSpriteBatch batch;
+    private ShaderProgram shader;
+    private FrameBuffer buffer;
+
+    /**
+     * @param screenX x coordinate in screen space, same as used by {@link ImageFragments#render}
+     * @param screenY y coordinate in screen space
+     * @param worldX  the same point in world space, used to test fragments which are not baked
+     * @param worldY  the same point in world space
+     * @return topmost fragment at given point or null
+     */
+    ImageFragment pick(ImageFragments imageFragments, float screenX, float screenY, float worldX, float worldY) {
+        Array<ImageFragment> fragments = imageFragments.getFragments();
+        if (fragments.size == 0) return null;
+        init();
+        culler.setViewport(screenX, screenY, 1, 1);
+        batch.getProjectionMatrix().setToOrtho2D(screenX, screenY, 1, 1);
+        buffer.begin();
+        Gdx.gl.glClearColor(0f, 0f, 0f, 0f);
+        Gdx.gl.glClear(GL20.GL_COLOR_BUFFER_BIT);
+        batch.begin();
+        for (int i = 0; i < fragments.size; ++i) {
+            ImageFragment fragment = fragments.get(i);
+            if (!fragment.isVisible(culler)) continue;
+            fragment.renderFlat(batch, encodeId(i + 1));
+        }
+        batch.end();
+        pixel.clear();
+        Gdx.gl.glReadPixels(0, 0, 1, 1, GL20.GL_RGBA, GL20.GL_UNSIGNED_BYTE, pixel);
+        buffer.end();
+        int id = decodeId(pixel);
+        int hitIndex = id > 0 && id <= fragments.size ? id - 1 : -1;
+        for (int i = fragments.size - 1; i > hitIndex; --i) {
+            ImageFragment fragment = fragments.get(i);
+            if (!fragment.isBaked() && fragment.isVisible(culler) && fragment.isWithinBounds(worldX, worldY)) {
+                return fragment;
+            }
+        }
+        return hitIndex >= 0 ? fragments.get(hitIndex) : null;
+    }
+
+    private float encodeId(int id) {
+        idColor.set(((id >> 16) & 0xff) / 255f, ((id >> 8) & 0xff) / 255f, (id & 0xff) / 255f, 1f);
+        return idColor.toFloatBits();
+    }
+
+    private static int decodeId(ByteBuffer pixel) {
+        int r = pixel.get(0) & 0xff, g = pixel.get(1) & 0xff, b = pixel.get(2) & 0xff;
+        return (r << 16) | (g << 8) | b;
+    }
+
+    private void init() {
+        if (batch != null) return;
+        shader = new ShaderProgram(VERTEX_SHADER, FRAGMENT_SHADER);
+        if (!shader.isCompiled()) throw new IllegalStateException("Picking shader: " + shader.getLog());
+        batch = new PolygonSpriteBatch(2000, shader);
+        batch.disableBlending();
+        buffer = new FrameBuffer(Pixmap.Format.RGBA8888, 1, 1, false);
+    }
+
+    @Override
+    public void dispose() {
+        if (batch != null) {
+            batch.dispose();
+            shader.dispose();
+            buffer.dispose();
+            batch = null;
+            shader = null;
+            buffer = null;
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.github.st1hy.sabre.libgdx.fragments;
+
+import com.badlogic.gdx.math.Intersector;
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.math.Rectangle;
+import com.badlogic.gdx.utils.FloatArray;
+
+import java.util.BitSet;
+
+/**
+ * Low resolution raster of a polygon for cheap point in polygon tests.
+ * <p>
+ * Cells crossed by polygon edges are marked as edge cells and answered by exact polygon test.
+ * Remaining cells lie entirely inside or outside of the polygon and are answered by single bit lookup.
+ */
+class HitMask {
+    private static final int MAX_CELLS_PER_SIDE = 64;
+
+    private final float[] vertices;
+    private final float x, y, cellSize;
+    private final int columns, rows;
+    private final BitSet inside, edge;
+
+    private HitMask(float[] vertices, float x, float y, float cellSize, int columns, int rows) {
+        this.vertices = vertices;
+        this.x = x;
+        this.y = y;
+        this.cellSize = cellSize;
+        this.columns = columns;
+        this.rows = rows;
+        this.inside = new BitSet(columns * rows);
+        this.edge = new BitSet(columns * rows);
+    }
+
+    /**
+     * @param vertices polygon, first point may be repeated at the end
+     * @param bounds   area covered by the mask, points outside of it are never inside
+     */
+    static HitMask create(float[] vertices, Rectangle bounds) {
+        float cellSize = Math.max(1f, Math.max(bounds.width, bounds.height) / MAX_CELLS_PER_SIDE);
+        int columns = Math.max(1, MathUtils.ceil(bounds.width / cellSize));
+        int rows = Math.max(1, MathUtils.ceil(bounds.height / cellSize));
+        HitMask mask = new HitMask(vertices, bounds.x, bounds.y, cellSize, columns, rows);
+        mask.rasterizeEdges();
+        mask.fillInside();
+        return mask;
+    }
+
+    /**
+     * @return true if point in polygon coordinates is inside the polygon (even-odd rule)
+     */
+    boolean contains(float px, float py) {
+        int column = MathUtils.floor((px - x) / cellSize);
+        int row = MathUtils.floor((py - y) / cellSize);
+        if (column < 0 || row < 0 || column >= columns || row >= rows) return false;
+        int index = row * columns + column;
+        if (edge.get(index)) {
+            return Intersector.isPointInPolygon(vertices, 0, vertices.length, px, py);
+        }
+        return inside.get(index);
+    }
+
+    /**
+     * Marks every cell touched by an edge: for each column spanned by the edge, cells between lowest
+     * and highest point of the edge within that column.
+     */
+    private void rasterizeEdges() {
+        int count = vertices.length / 2;
+        for (int i = 0; i < count; ++i) {
+            int j = (i + 1) % count;
+            float ax = (vertices[2 * i] - x) / cellSize, ay = (vertices[2 * i + 1] - y) / cellSize;
+            float bx = (vertices[2 * j] - x) / cellSize, by = (vertices[2 * j + 1] - y) / cellSize;
+            if (ax > bx) {
+                float t = ax;
+                ax = bx;
+                bx = t;
+                t = ay;
+                ay = by;
+                by = t;
+            }
+            int firstColumn = Math.max(0, MathUtils.floor(ax));
+            int lastColumn = Math.min(columns - 1, MathUtils.floor(bx));
+            for (int column = firstColumn; column <= lastColumn; ++column) {
+                float y1 = yAt(ax, ay, bx, by, Math.max(ax, column));
+                float y2 = ax == bx ? by : yAt(ax, ay, bx, by, Math.min(bx, column + 1));
+                int firstRow = Math.max(0, MathUtils.floor(Math.min(y1, y2)));
+                int lastRow = Math.min(rows - 1, MathUtils.floor(Math.max(y1, y2)));
+                for (int row = firstRow; row <= lastRow; ++row) {
+                    edge.set(row * columns + column);
+                }
+            }
+        }
+    }
+
+    private static float yAt(float ax, float ay, float bx, float by, float px) {
+        if (bx == ax) return ay;
+        return ay + (by - ay) * (px - ax) / (bx - ax);
+    }
+
+    /**
+     * Classifies cells not crossed by edges by their centers, one scanline per row.
+     */
+    private void fillInside() {
+        FloatArray crossings = new FloatArray();
+        int count = vertices.length / 2;
+        for (int row = 0; row < rows; ++row) {
+            float scanY = y + (row + 0.5f) * cellSize;
+            crossings.clear();
+            for (int i = 0; i < count; ++i) {
+                int j = (i + 1) % count;
+                float ax = vertices[2 * i], ay = vertices[2 * i + 1];
+                float bx = vertices[2 * j], by = vertices[2 * j + 1];
+                if ((ay > scanY) != (by > scanY)) {
+                    crossings.add(ax + (scanY - ay) * (bx - ax) / (by - ay));
+                }
+            }
+            crossings.sort();
+            int crossing = 0;
+            for (int column = 0; column < columns; ++column) {
+                int index = row * columns + column;
+                float centerX = x + (column + 0.5f) * cellSize;
+                while (crossing < crossings.size && crossings.get(crossing) < centerX) crossing++;
+                if (!edge.get(index) && crossing % 2 == 1) inside.set(index);
+            }
+        }
+    }
+}
@@ -0,0 +1,340 @@
+package com.github.st1hy.sabre.libgdx.fragments;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.GL20;
+import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.graphics.g2d.PolygonSpriteBatch;
+import com.badlogic.gdx.graphics.glutils.FrameBuffer;
+import com.badlogic.gdx.math.Rectangle;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.BufferUtils;
+import com.badlogic.gdx.utils.ObjectMap;
+import com.github.st1hy.coregdx.PngStreamEncoder;
+import com.github.st1hy.coregdx.TiledTexture;
+import com.github.st1hy.sabre.libgdx.LayerCache;
+import com.github.st1hy.sabre.libgdx.ScreenContext;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+import rx.Observable;
+import rx.Scheduler;
+import rx.Subscriber;
+import rx.concurrency.GdxScheduler;
+import rx.exceptions.Exceptions;
+import rx.functions.Action0;
+import rx.functions.Func0;
+import rx.functions.Func1;
+import rx.schedulers.Schedulers;
+
+/**
+ * Renders background with all fragments at resolution of the background textures into PNG.
+ * <p>
+ * Image is drawn in horizontal strips, every strip tile by tile into offscreen buffer no larger than
+ * background tile. Strip height is chosen so strip holds no more pixels than single tile. Tiles are read back
+ * into the strip on GL thread, the strip is passed to {@link PngStreamEncoder} on single encoder thread while
+ * the next strip is drawn into the other of two strip buffers, so memory used does not depend on image size and
+ * GL thread does not compress. Fragments are drawn as meshes textured directly with background, so they are
+ * exported at full resolution of the background regardless of zoom they were baked for, and without shadows.
+ * <p>
+ * When the image was decoded downsampled to fit memory, background textures are smaller than the source image,
+ * the image is exported at size of the textures then, not upscaled to the source size.
+ */
+public class ImageExporter {
+    private static final float COLOR_WHITE = Color.WHITE.toFloatBits();
+    private static final int BYTES_PER_PIXEL = 4;
+    private static final int STRIP_BUFFERS = 2;
+
+    private final ScreenContext model;
+    private final Array<ImageFragment> fragments;
+
+    /**
+     * @param fragments fragments of the screen context, in drawing order
+     */
+    ImageExporter(ScreenContext model, Array<ImageFragment> fragments) {
+        this.model = model;
+        this.fragments = fragments;
+    }
+
+    /**
+     * Writes composed image to output stream and closes it. Export starts when observable is subscribed and
+     * stops when it is unsubscribed, output stream is closed in both cases. Must be subscribed on GL thread.
+     *
+     * @return number of rows written so far, completes when the whole image was written
+     */
+    public Observable<Integer> export(final OutputStream out) {
+        return Observable.defer(new Func0<Observable<Integer>>() {
+            @Override
+            public Observable<Integer> call() {
+                final Strips strips = new Strips(new Array<>(fragments));
+                final Encoder encoder;
+                try {
+                    encoder = new Encoder(out, strips.width, strips.height);
+                } catch (IOException e) {
+                    return Observable.error(e);
+                }
+                final Scheduler.Worker encoderWorker = Schedulers.io().createWorker();
+                return Observable.range(0, strips.count)
+                        .flatMap(new Func1<Integer, Observable<Integer>>() {
+                            @Override
+                            public Observable<Integer> call(Integer index) {
+                                return exportStrip(strips, index, encoder, encoderWorker);
+                            }
+                        }, STRIP_BUFFERS)
+                        .doOnCompleted(new Action0() {
+                            @Override
+                            public void call() {
+                                encoder.finish();
+                            }
+                        })
+                        .doOnUnsubscribe(new Action0() {
+                            @Override
+                            public void call() {
+                                encoderWorker.unsubscribe();
+                                encoder.stop();
+                                Gdx.app.postRunnable(new Runnable() {
+                                    @Override
+                                    public void run() {
+                                        strips.release();
+                                    }
+                                });
+                            }
+                        });
+            }
+        });
+    }
+
+    /**
+     * At most {@link #STRIP_BUFFERS} strips are exported at once, strip with given index is drawn into buffer
+     * of strip exported {@link #STRIP_BUFFERS} indices before, which was already encoded. Strips are drawn one
+     * after another on GL thread and encoding is scheduled in the same order on single worker, so rows reach
+     * the encoder in order.
+     */
+    private Observable<Integer> exportStrip(final Strips strips, final int index, final Encoder encoder,
+                                           final Scheduler.Worker encoderWorker) {
+        return Observable.defer(new Func0<Observable<ByteBuffer>>() {
+            @Override
+            public Observable<ByteBuffer> call() {
+                return Observable.just(strips.render(index));
+            }
+        }).subscribeOn(GdxScheduler.get())
+                .flatMap(new Func1<ByteBuffer, Observable<Integer>>() {
+                    @Override
+                    public Observable<Integer> call(final ByteBuffer strip) {
+                        return Observable.create(new Observable.OnSubscribe<Integer>() {
+                            @Override
+                            public void call(final Subscriber<? super Integer> subscriber) {
+                                subscriber.add(encoderWorker.schedule(new Action0() {
+                                    @Override
+                                    public void call() {
+                                        try {
+                                            int rows = encoder.write(strip, strips.width);
+                                            subscriber.onNext(rows);
+                                            subscriber.onCompleted();
+                                        } catch (Throwable e) {
+                                            Exceptions.throwOrReport(e, subscriber);
+                                        }
+                                    }
+                                }));
+                            }
+                        });
+                    }
+                });
+    }
+
+    /**
+     * Drawing and reading back of strips for single export. Used on GL thread only.
+     */
+    private class Strips {
+        private final Array<ImageFragment> fragments;
+        private final ObjectMap<ImageFragment, FragmentMesh> meshes = new ObjectMap<>();
+        private final Rectangle bounds = new Rectangle();
+        private final Rectangle tileBounds = new Rectangle();
+        private final TiledTexture background;
+        /**
+         * Size of exported image in pixels and size of single pixel in image coordinates.
+         */
+        private final int width, height;
+        private final float pixelWidth, pixelHeight;
+        private final int tileWidth, stripHeight, count;
+        private final ByteBuffer[] buffers = new ByteBuffer[STRIP_BUFFERS];
+        private PolygonSpriteBatch batch;
+        private FrameBuffer frameBuffer;
+        private ByteBuffer tile;
+        private boolean isReleased = false;
+
+        Strips(Array<ImageFragment> fragments) {
+            this.fragments = fragments;
+            background = model.getBackground();
+            width = background.getTextureWidth();
+            height = background.getTextureHeight();
+            pixelWidth = (float) background.getWidth() / width;
+            pixelHeight = (float) background.getHeight() / height;
+            int tileSize = TiledTexture.getDefaultTileSize();
+            tileWidth = Math.min(width, tileSize);
+            stripHeight = Math.min(height, Math.max(1, Math.min(tileSize, tileSize * tileSize / width)));
+            count = (height + stripHeight - 1) / stripHeight;
+        }
+
+        /**
+         * Strips are numbered from the top of the image.
+         *
+         * @return pixels of the strip, bottom row first
+         */
+        ByteBuffer render(int index) {
+            if (isReleased) throw new IllegalStateException("Export was stopped");
+            init();
+            int top = height - index * stripHeight;
+            int bottom = Math.max(0, top - stripHeight);
+            int rows = top - bottom;
+            ByteBuffer strip = buffers[index % STRIP_BUFFERS];
+            ByteBuffer target = tile != null ? tile : strip;
+            strip.clear();
+            for (int left = 0; left < width; left += tileWidth) {
+                int columns = Math.min(tileWidth, width - left);
+                renderTile(left, bottom);
+                frameBuffer.begin();
+                target.clear();
+                Gdx.gl.glReadPixels(0, 0, columns, rows, GL20.GL_RGBA, GL20.GL_UNSIGNED_BYTE, target);
+                frameBuffer.end();
+                if (tile != null) copyToStrip(tile, strip, left, columns, rows, width);
+            }
+            strip.position(0);
+            strip.limit(rows * width * BYTES_PER_PIXEL);
+            releaseMeshesAbove(bottom * pixelHeight);
+            return strip;
+        }
+
+        private void init() {
+            if (batch != null) return;
+            for (int i = 0; i < STRIP_BUFFERS; ++i) {
+                buffers[i] = BufferUtils.newByteBuffer(width * stripHeight * BYTES_PER_PIXEL);
+            }
+            tile = tileWidth == width ? null : BufferUtils.newByteBuffer(tileWidth * stripHeight * BYTES_PER_PIXEL);
+            frameBuffer = new FrameBuffer(Pixmap.Format.RGBA8888, tileWidth, stripHeight, false);
+            batch = new PolygonSpriteBatch();
+        }
+
+        /**
+         * Draws area of the image with bottom left corner at given pixel into frame buffer.
+         */
+        private void renderTile(int left, int bottom) {
+            float x = left * pixelWidth, y = bottom * pixelHeight;
+            float areaWidth = tileWidth * pixelWidth, areaHeight = stripHeight * pixelHeight;
+            frameBuffer.begin();
+            Gdx.gl.glClearColor(0f, 0f, 0f, 0f);
+            Gdx.gl.glClear(GL20.GL_COLOR_BUFFER_BIT);
+            batch.getProjectionMatrix().setToOrtho2D(x, y, areaWidth, areaHeight);
+            batch.begin();
+            LayerCache.setLayerBlending(batch);
+            Array<TiledTexture.Tile> tiles = background.getTiles();
+            for (int i = 0; i < tiles.size; ++i) {
+                TiledTexture.Tile backgroundTile = tiles.get(i);
+                if (backgroundTile.overlaps(x, y, areaWidth, areaHeight)) backgroundTile.draw(batch);
+            }
+            tileBounds.set(x, y, areaWidth, areaHeight);
+            for (int i = 0; i < fragments.size; ++i) {
+                ImageFragment fragment = fragments.get(i);
+                if (!fragment.getBounds(bounds).overlaps(tileBounds)) continue;
+                getMesh(fragment).draw(batch, fragment.getModel().getImageTransformation().getTransformation(),
+                        COLOR_WHITE);
+            }
+            batch.end();
+            frameBuffer.end();
+        }
+
+        private FragmentMesh getMesh(ImageFragment fragment) {
+            FragmentMesh mesh = meshes.get(fragment);
+            if (mesh == null) {
+                mesh = FragmentMesh.create(fragment.getModel().getVertices(), fragment.getModel().getTriangles(),
+                        background);
+                meshes.put(fragment, mesh);
+            }
+            return mesh;
+        }
+
+        /**
+         * Strips are drawn top to bottom, meshes of fragments entirely above the strip are not needed anymore.
+         */
+        private void releaseMeshesAbove(float y) {
+            ObjectMap.Keys<ImageFragment> keys = meshes.keys();
+            while (keys.hasNext()) {
+                if (keys.next().getBounds(bounds).y >= y) keys.remove();
+            }
+        }
+
+        void release() {
+            isReleased = true;
+            meshes.clear();
+            if (batch != null) {
+                batch.dispose();
+                frameBuffer.dispose();
+                batch = null;
+                frameBuffer = null;
+            }
+        }
+    }
+
+    /**
+     * Encoder shared by the encoder thread and the thread stopping the export.
+     */
+    private static class Encoder {
+        private final PngStreamEncoder encoder;
+        private final int height;
+        private boolean isStopped = false;
+
+        Encoder(OutputStream out, int width, int height) throws IOException {
+            this.encoder = new PngStreamEncoder(out, width, height);
+            this.height = height;
+        }
+
+        /**
+         * @param strip rows of the strip, bottom row first
+         * @return number of rows written so far
+         */
+        synchronized int write(ByteBuffer strip, int width) throws IOException {
+            if (isStopped) throw new IllegalStateException("Export was stopped");
+            int rowBytes = width * BYTES_PER_PIXEL;
+            for (int row = strip.limit() / rowBytes - 1; row >= 0; --row) {
+                strip.limit((row + 1) * rowBytes);
+                strip.position(row * rowBytes);
+                encoder.writeRow(strip);
+            }
+            return height - encoder.getRemainingRows();
+        }
+
+        synchronized void finish() {
+            if (isStopped) return;
+            isStopped = true;
+            try {
+                encoder.close();
+            } catch (IOException e) {
+                throw Exceptions.propagate(e);
+            }
+        }
+
+        /**
+         * Releases encoder of failed or stopped export, its own error would hide the original one.
+         */
+        synchronized void stop() {
+            if (isStopped) return;
+            isStopped = true;
+            try {
+                encoder.close();
+            } catch (IOException | RuntimeException ignored) {
+            }
+        }
+    }
+
+    private static void copyToStrip(ByteBuffer tile, ByteBuffer strip, int left, int columns, int rows, int width) {
+        int rowBytes = columns * BYTES_PER_PIXEL;
+        for (int row = 0; row < rows; ++row) {
+            tile.limit(row * rowBytes + rowBytes);
+            tile.position(row * rowBytes);
+            strip.position((row * width + left) * BYTES_PER_PIXEL);
+            strip.put(tile);
+        }
+    }
+}
@@ -3,47 +3,83 @@ package com.github.st1hy.sabre.libgdx.fragments;
 import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.graphics.Color;
 import com.badlogic.gdx.graphics.GL20;
-import com.badlogic.gdx.graphics.Pixmap;
-import com.badlogic.gdx.graphics.Texture;
 import com.badlogic.gdx.graphics.g2d.PolygonRegion;
 import com.badlogic.gdx.graphics.g2d.PolygonSprite;
 import com.badlogic.gdx.graphics.g2d.PolygonSpriteBatch;
 import com.badlogic.gdx.graphics.g2d.Sprite;
-import com.badlogic.gdx.graphics.g2d.SpriteBatch;
 import com.badlogic.gdx.graphics.g2d.TextureRegion;
-import com.badlogic.gdx.graphics.glutils.FrameBuffer;
-import com.badlogic.gdx.math.EarClippingTriangulator;
+import com.badlogic.gdx.math.Affine2;
 import com.badlogic.gdx.math.Intersector;
 import com.badlogic.gdx.math.MathUtils;
 import com.badlogic.gdx.math.Matrix3;
 import com.badlogic.gdx.math.Matrix4;
-import com.badlogic.gdx.math.Polygon;
 import com.badlogic.gdx.math.Rectangle;
-import com.badlogic.gdx.math.Vector3;
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.utils.Array;
 import com.badlogic.gdx.utils.Disposable;
+import com.github.st1hy.coregdx.LevelOfDetail;
+import com.github.st1hy.coregdx.TiledTexture;
 import com.github.st1hy.coregdx.TouchEventState;
 import com.github.st1hy.coregdx.Transformable;
+import com.github.st1hy.coregdx.Transformation;
+import com.github.st1hy.coregdx.ViewportCuller;
 import com.github.st1hy.sabre.libgdx.ScreenContext;
 import com.github.st1hy.sabre.libgdx.model.ImageFragmentModel;
 
+import static com.badlogic.gdx.graphics.g2d.Batch.C1;
+import static com.badlogic.gdx.graphics.g2d.Batch.U1;
+import static com.badlogic.gdx.graphics.g2d.Batch.V1;
+import static com.badlogic.gdx.graphics.g2d.Batch.X1;
+import static com.badlogic.gdx.graphics.g2d.Batch.Y1;
+
 public class ImageFragment implements Disposable, Transformable {
     private final ImageFragmentModel model;
     private final ScreenContext screenModel;
 
-    private Rectangle intersection;
-    private Polygon polygon;
+    private final Rectangle intersection;
 
-    private FrameBuffer fbo = null;
+    private FragmentAtlas.Region region = null;
     private Sprite sprite = null;
+    private int bakedLevel;
+    private FragmentMesh mesh = null;
+    /**
+     * Baked content was taken from previous background.
+     */
+    private boolean isStale = false;
+    private HitMask hitMask = null;
     private float elevation;
 
-    private Matrix4 fragmentMatrix = new Matrix4(), imagePartialMatrix = new Matrix4(), shadowMatrix = new Matrix4();
-    private Vector3 tempVector3 = new Vector3();
+    /**
+     * Polygons with fewer vertices are hit tested directly, without a mask.
+     */
+    private static final int MIN_HIT_MASK_VERTICES = 64;
+    private static final int VERTEX_SIZE = 5;
+    private static final int SPRITE_SIZE = 4 * VERTEX_SIZE;
+    private static final float COLOR_WHITE = Color.WHITE.toFloatBits();
+    private static final float COLOR_SHADOW = new Color(0f, 0f, 0f, 0.3f).toFloatBits();
+    private static final float COLOR_PLACEHOLDER = new Color(0.5f, 0.5f, 0.5f, 0.5f).toFloatBits();
+    private static final Color COLOR_BLEED = new Color(1f, 1f, 1f, 0f);
+    /**
+     * Work matrix for baking, fragments are baked on GL thread only.
+     */
+    private static final Matrix4 bakeProjection = new Matrix4();
+
+    private Affine2 fragmentMatrix = new Affine2(), imagePartialMatrix = new Affine2(), shadowMatrix = new Affine2();
+    /**
+     * Versions of world and image transformations cached matrices and bounds were computed for.
+     */
+    private int fragmentWorldVersion = -1, fragmentImageVersion = -1, boundsImageVersion = -1;
+    private boolean isShadowDirty = true;
+    private float shadowElevation;
+    private final Rectangle screenBounds = new Rectangle(), imageBounds = new Rectangle();
+    private Vector2 tempVector2 = new Vector2();
+    private final float[] transformedVertices = new float[SPRITE_SIZE];
 
 
-    private ImageFragment(ImageFragmentModel model, ScreenContext screenModel) {
+    private ImageFragment(ImageFragmentModel model, ScreenContext screenModel, Rectangle intersection) {
         this.model = model;
         this.screenModel = screenModel;
+        this.intersection = intersection;
         this.elevation = screenModel.getElevation().getElevationLow();
     }
 
@@ -52,37 +88,22 @@ public class ImageFragment implements Disposable, Transformable {
      * If path is located outside of image returns null;
      */
     public static ImageFragment createNewFragment(float[] vertices, ScreenContext screenModel) {
-        Polygon polygon = new Polygon(vertices);
-        Rectangle polygonBounds = polygon.getBoundingRectangle();
-        Texture texture = screenModel.getBackground();
-        Rectangle textureBounds = new Rectangle(0, 0, texture.getWidth(), texture.getHeight());
-        Rectangle intersection = new Rectangle();
-        if (Intersector.intersectRectangles(polygonBounds, textureBounds, intersection)) {
-            ImageFragmentModel model = new ImageFragmentModel(vertices);
-            ImageFragment fragment = new ImageFragment(model, screenModel);
-            fragment.polygon = polygon;
-            fragment.intersection = intersection;
-            return fragment;
-        } else {
-            return null;
-        }
+        return createNewFragment(new ImageFragmentModel(vertices), screenModel);
     }
 
     /**
-     * Creates new fragment from an intersection of image and area created by path.
-     * If path is located outside of image returns null;
+     * Creates fragment from stored model. Only bounds of the model are computed here, triangulation,
+     * baked content and hit mask are built when fragment is first drawn or tested.
+     * If model is not a polygon or is located outside of image returns null;
      */
     public static ImageFragment createNewFragment(ImageFragmentModel model, ScreenContext screenModel) {
-        Polygon polygon = new Polygon(model.getVertices());
-        Rectangle polygonBounds = polygon.getBoundingRectangle();
-        Texture texture = screenModel.getBackground();
-        Rectangle textureBounds = new Rectangle(0, 0, texture.getWidth(), texture.getHeight());
+        float[] vertices = model.getVertices();
+        if (vertices == null || vertices.length < 6) return null;
+        TiledTexture background = screenModel.getBackground();
+        Rectangle textureBounds = new Rectangle(0, 0, background.getWidth(), background.getHeight());
         Rectangle intersection = new Rectangle();
-        if (Intersector.intersectRectangles(polygonBounds, textureBounds, intersection)) {
-            ImageFragment fragment = new ImageFragment(model, screenModel);
-            fragment.polygon = polygon;
-            fragment.intersection = intersection;
-            return fragment;
+        if (Intersector.intersectRectangles(model.getBounds(), textureBounds, intersection)) {
+            return new ImageFragment(model, screenModel, intersection);
         } else {
             return null;
         }
@@ -92,38 +113,187 @@ public class ImageFragment implements Disposable, Transformable {
         return model;
     }
 
-    public void prerender() {
-        if (sprite == null ) {
-            getSpriteLazy();
+    /**
+     * @return true if fragment can be drawn in current {@link FragmentRenderMode}
+     */
+    public boolean isBaked() {
+        return isMeshMode() ? mesh != null : sprite != null;
+    }
+
+    /**
+     * @return true if fragment is not baked yet, it was baked from previous background
+     * or current zoom needs more detail than it was baked with
+     */
+    public boolean needsBaking() {
+        if (isMeshMode()) return mesh == null;
+        return sprite == null || isStale || getRequiredLevel() < bakedLevel;
+    }
+
+    /**
+     * Called before background is replaced. Mesh refers to background textures and is released,
+     * content baked into atlas is still drawn until fragment is baked again.
+     */
+    public void onBackgroundChanged() {
+        mesh = null;
+        isStale = true;
+    }
+
+    private boolean isMeshMode() {
+        return screenModel.getFragmentRenderMode() == FragmentRenderMode.MESH;
+    }
+
+    /**
+     * @return detail level matching current scale of the fragment on screen
+     */
+    public int getRequiredLevel() {
+        updateFragmentMatrix();
+        return LevelOfDetail.levelOf(LevelOfDetail.getScale(fragmentMatrix));
+    }
+
+    /**
+     * Sets fragment matrix to transformation from polygon coordinates to screen coordinates,
+     * unless world and image transformations did not change since it was last computed.
+     */
+    private void updateFragmentMatrix() {
+        Transformation world = screenModel.getWorldTransformation();
+        Transformation image = model.getImageTransformation();
+        if (world.getVersion() == fragmentWorldVersion && image.getVersion() == fragmentImageVersion) return;
+        fragmentMatrix.setToProduct(world.getTransformation(), image.getTransformation());
+        ViewportCuller.transformBounds(fragmentMatrix, intersection.x, intersection.y,
+                intersection.width, intersection.height, screenBounds);
+        fragmentWorldVersion = world.getVersion();
+        fragmentImageVersion = image.getVersion();
+        isShadowDirty = true;
+    }
+
+    /**
+     * @param out receives axis aligned bounds of the fragment transformed by its image transformation
+     * @return out
+     */
+    public Rectangle getBounds(Rectangle out) {
+        Transformation image = model.getImageTransformation();
+        if (image.getVersion() != boundsImageVersion) {
+            ViewportCuller.transformBounds(image.getTransformation(), intersection.x, intersection.y,
+                    intersection.width, intersection.height, imageBounds);
+            boundsImageVersion = image.getVersion();
         }
+        return out.set(imageBounds);
+    }
+
+    /**
+     * @return modification counter of image transformation, changes together with {@link #getBounds bounds}
+     */
+    public int getBoundsVersion() {
+        return model.getImageTransformation().getVersion();
     }
 
-    public void render(SpriteBatch batch) {
-        if (sprite != null) {
-            batch.enableBlending();
-            Matrix4 worldMatrix = screenModel.getWorldTransformation().getTransformation();
-            Matrix4 imageMatrix = model.getImageTransformation().getTransformation();
-            fragmentMatrix.set(worldMatrix).mul(imageMatrix);
+    /**
+     * @return true if fragment or its shadow may be seen in culler viewport (screen coordinates)
+     */
+    public boolean isVisible(ViewportCuller culler) {
+        updateFragmentMatrix();
+        return culler.isVisible(screenBounds, elevation);
+    }
+
+    /**
+     * Draws fragment with its shadow. Vertices are transformed here instead of by batch transform
+     * matrix, so fragments sharing atlas page are drawn without flushing the batch.
+     * Batch transform matrix is expected to be identity.
+     */
+    public void render(PolygonSpriteBatch batch) {
+        if (isBaked()) {
+            updateFragmentMatrix();
             renderShadow(batch, fragmentMatrix);
-            batch.setTransformMatrix(fragmentMatrix);
-            sprite.draw(batch);
+            draw(batch, fragmentMatrix, COLOR_WHITE);
         }
     }
 
-    private void renderShadow(SpriteBatch batch, Matrix4 transformation) {
-        shadowMatrix.idt().setTranslation(elevation, -elevation, 0).mul(transformation);
-        batch.setTransformMatrix(shadowMatrix);
-        sprite.setColor(Color.BLACK);
-        sprite.setAlpha(0.3f);
-        sprite.draw(batch);
-        sprite.setColor(Color.WHITE);
-        sprite.setAlpha(1f);
+    /**
+     * Draws cheap stand-in for fragment which is not baked yet: its bounds filled with placeholder region.
+     * Batch transform matrix is expected to be identity.
+     */
+    public void renderPlaceholder(PolygonSpriteBatch batch, TextureRegion placeholder) {
+        updateFragmentMatrix();
+        drawPlaceholder(batch, placeholder, COLOR_PLACEHOLDER);
+    }
+
+    /**
+     * Draws area covered by fragment in single color without shadow. Fragments not baked yet are not drawn.
+     * Batch transform matrix is expected to be identity.
+     */
+    public void renderFlat(PolygonSpriteBatch batch, float packedColor) {
+        if (!isBaked()) return;
+        updateFragmentMatrix();
+        draw(batch, fragmentMatrix, packedColor);
+    }
+
+    private void drawPlaceholder(PolygonSpriteBatch batch, TextureRegion placeholder, float packedColor) {
+        float x1 = intersection.x, y1 = intersection.y;
+        float x2 = x1 + intersection.width, y2 = y1 + intersection.height;
+        setVertex(0, x1, y1, placeholder.getU(), placeholder.getV2());
+        setVertex(1, x1, y2, placeholder.getU(), placeholder.getV());
+        setVertex(2, x2, y2, placeholder.getU2(), placeholder.getV());
+        setVertex(3, x2, y1, placeholder.getU2(), placeholder.getV2());
+        Affine2 m = fragmentMatrix;
+        for (int i = 0; i < SPRITE_SIZE; i += VERTEX_SIZE) {
+            float x = transformedVertices[i + X1];
+            float y = transformedVertices[i + Y1];
+            transformedVertices[i + X1] = m.m00 * x + m.m01 * y + m.m02;
+            transformedVertices[i + Y1] = m.m10 * x + m.m11 * y + m.m12;
+            transformedVertices[i + C1] = packedColor;
+        }
+        batch.draw(placeholder.getTexture(), transformedVertices, 0, SPRITE_SIZE);
+    }
+
+    private void setVertex(int index, float x, float y, float u, float v) {
+        int i = index * VERTEX_SIZE;
+        transformedVertices[i + X1] = x;
+        transformedVertices[i + Y1] = y;
+        transformedVertices[i + U1] = u;
+        transformedVertices[i + V1] = v;
+    }
+
+    private void renderShadow(PolygonSpriteBatch batch, Affine2 transformation) {
+        if (isShadowDirty || shadowElevation != elevation) {
+            shadowMatrix.set(transformation).preTranslate(elevation, -elevation);
+            shadowElevation = elevation;
+            isShadowDirty = false;
+        }
+        draw(batch, shadowMatrix, COLOR_SHADOW);
+    }
+
+    private void draw(PolygonSpriteBatch batch, Affine2 transformation, float packedColor) {
+        if (isMeshMode()) {
+            mesh.draw(batch, transformation, packedColor);
+            return;
+        }
+        float[] vertices = sprite.getVertices();
+        Affine2 m = transformation;
+        for (int i = 0; i < SPRITE_SIZE; i += VERTEX_SIZE) {
+            float x = vertices[i + X1];
+            float y = vertices[i + Y1];
+            transformedVertices[i + X1] = m.m00 * x + m.m01 * y + m.m02;
+            transformedVertices[i + Y1] = m.m10 * x + m.m11 * y + m.m12;
+            transformedVertices[i + C1] = packedColor;
+            transformedVertices[i + U1] = vertices[i + U1];
+            transformedVertices[i + V1] = vertices[i + V1];
+        }
+        batch.draw(sprite.getTexture(), transformedVertices, 0, SPRITE_SIZE);
     }
 
 
     @Override
     public void dispose() {
-        if (fbo != null) fbo.dispose();
+        releaseRegion();
+        mesh = null;
+    }
+
+    private void releaseRegion() {
+        if (region != null) {
+            screenModel.getFragmentAtlas().free(region);
+            region = null;
+            sprite = null;
+        }
     }
 
 
@@ -134,9 +304,12 @@ public class ImageFragment implements Disposable, Transformable {
     @Override
     public void applyTransformation(TouchEventState state, Matrix3 matrix3) {
         imagePartialMatrix.set(matrix3)
-                .mulLeft(screenModel.getWorldTransformation().getInvTransformation())
+                .preMul(screenModel.getWorldTransformation().getInvTransformation())
                 .mul(screenModel.getWorldTransformation().getTransformation());
         TRANSFORM.apply(model.getImageTransformation(), state, imagePartialMatrix);
+        if (state == TouchEventState.ENDED) {
+            screenModel.getOperationLog().recordTransformed(model, imagePartialMatrix);
+        }
     }
 
     @Override
@@ -152,62 +325,150 @@ public class ImageFragment implements Disposable, Transformable {
      * x,y coordinates are in image space
      */
     public boolean isWithinBounds(float x, float y) {
-        tempVector3.set(x, y, 0).mul(model.getImageTransformation().getInvTransformation());
-        x = tempVector3.x;
-        y = tempVector3.y;
-
-        float[] vertices = polygon.getVertices();
-        boolean isWithinBounds = intersection.contains(x, y);
-        boolean isInPolygon = false;
-        if (isWithinBounds) {
-            isInPolygon = Intersector.isPointInPolygon(vertices, 0, vertices.length, x, y);
+        tempVector2.set(x, y);
+        model.getImageTransformation().getInvTransformation().applyTo(tempVector2);
+        x = tempVector2.x;
+        y = tempVector2.y;
+
+        if (!intersection.contains(x, y)) return false;
+        float[] vertices = model.getVertices();
+        if (vertices.length < 2 * MIN_HIT_MASK_VERTICES) {
+            return Intersector.isPointInPolygon(vertices, 0, vertices.length, x, y);
         }
-        return isWithinBounds && isInPolygon;
+        if (hitMask == null) hitMask = HitMask.create(vertices, intersection);
+        return hitMask.contains(x, y);
     }
 
     public Sprite getSpriteLazy() {
-        if (sprite != null) return sprite;
+        if (sprite == null) bakeIntoAtlas();
+        return sprite;
+    }
 
-        PolygonSprite polygonSprite = createPolygonSprite(screenModel.getBackground(), polygon);
+    /**
+     * Prepares fragment for drawing in current {@link FragmentRenderMode}.
+     * Content kept for the other mode is released.
+     */
+    public void bake() {
+        isStale = false;
+        if (isMeshMode()) {
+            releaseRegion();
+            mesh = FragmentMesh.create(model.getVertices(), getTriangles(), screenModel.getBackground());
+        } else {
+            mesh = null;
+            bakeIntoAtlas();
+        }
+    }
 
-        PolygonSpriteBatch fb = new PolygonSpriteBatch();
+    /**
+     * Bakes part of background covered by the polygon into fragment atlas, at resolution
+     * matching current zoom. Previously baked content is released.
+     * <p>
+     * Region and its padding are first filled with background colors at zero alpha, so filtering
+     * and mip maps blend polygon edges with colors of the image instead of transparent black.
+     * Polygon is then drawn separately for every background tile it overlaps, clipped to that tile.
+     */
+    private void bakeIntoAtlas() {
+        FragmentAtlas atlas = screenModel.getFragmentAtlas();
+        int level = getRequiredLevel();
         int x = MathUtils.floor(intersection.x);
         int y = MathUtils.floor(intersection.y);
         int width = MathUtils.ceil(intersection.width);
         int height = MathUtils.ceil(intersection.height);
-        FrameBuffer fbo = new FrameBuffer(Pixmap.Format.RGBA8888, width, height, false);
-        fb.getProjectionMatrix().setToOrtho2D(x, y, width, height);
-
-        fbo.begin();
-
-        fb.enableBlending();
+        float scale = Math.min(LevelOfDetail.scaleOf(level), (float) atlas.getMaxRegionSize() / Math.max(width, height));
+        int bakedWidth = Math.max(1, MathUtils.ceil(width * scale));
+        int bakedHeight = Math.max(1, MathUtils.ceil(height * scale));
+        FragmentAtlas.Region region = atlas.allocate(bakedWidth, bakedHeight);
+
+        PolygonSpriteBatch fb = atlas.getBakeBatch();
+        float paddingX = (float) region.getPadding() * width / region.getRegionWidth();
+        float paddingY = (float) region.getPadding() * height / region.getRegionHeight();
+        float paddedX = x - paddingX, paddedY = y - paddingY;
+        float paddedWidth = width + 2 * paddingX, paddedHeight = height + 2 * paddingY;
+        fb.setProjectionMatrix(bakeProjection.setToOrtho2D(paddedX, paddedY, paddedWidth, paddedHeight));
+
+        region.begin();
+        region.setPaddedViewport();
+
+        fb.setBlendFunction(-1, -1);
         Gdx.gl.glBlendFuncSeparate(GL20.GL_SRC_ALPHA, GL20.GL_ONE_MINUS_SRC_ALPHA, GL20.GL_ONE, GL20.GL_ONE_MINUS_SRC_ALPHA);
-
-        Gdx.gl.glClearColor(0f, 0f, 0f, 0f);
-        Gdx.gl.glClear(GL20.GL_COLOR_BUFFER_BIT);
+        fb.disableBlending();
+        fb.setColor(COLOR_BLEED);
 
         fb.begin();
 
-        polygonSprite.draw(fb);
+        Array<TiledTexture.Tile> tiles = screenModel.getBackground().getTiles();
+        for (int i = 0; i < tiles.size; ++i) {
+            TiledTexture.Tile tile = tiles.get(i);
+            if (tile.overlaps(paddedX, paddedY, paddedWidth, paddedHeight)) tile.draw(fb);
+        }
+        fb.flush();
+        fb.setColor(Color.WHITE);
+        fb.enableBlending();
+        region.setViewport();
+        fb.setProjectionMatrix(bakeProjection.setToOrtho2D(x, y, width, height));
+
+        for (int i = 0; i < tiles.size; ++i) {
+            TiledTexture.Tile tile = tiles.get(i);
+            if (!tile.overlaps(x, y, width, height)) continue;
+            scissorToTile(region, tile, x, y, width, height);
+            createPolygonSprite(tile, model.getVertices(), getTriangles()).draw(fb);
+            fb.flush();
+        }
 
         fb.end();
 
-        fbo.end();
+        region.end();
 
-        Sprite sprite = new Sprite(fbo.getColorBufferTexture());
-        sprite.getTexture().setFilter(Texture.TextureFilter.Nearest, Texture.TextureFilter.Nearest);
+        Sprite sprite = new Sprite(region);
         sprite.flip(false, true);
-        sprite.translate(x, y);
+        sprite.setBounds(x, y, width, height);
 
+        releaseRegion();
         this.sprite = sprite;
-        this.fbo = fbo;
-        return sprite;
+        this.region = region;
+        this.bakedLevel = level;
+    }
+
+    private short[] getTriangles() {
+        return model.getTriangles();
+    }
+
+    /**
+     * Limits rendering into region to the part of baked area (x, y, width, height) covered by tile.
+     */
+    private static void scissorToTile(FragmentAtlas.Region region, TiledTexture.Tile tile,
+                                      int x, int y, int width, int height) {
+        float scaleX = (float) region.getRegionWidth() / width;
+        float scaleY = (float) region.getRegionHeight() / height;
+        int left = toRegion(tile.getX() - x, scaleX, region.getRegionWidth());
+        int right = toRegion(tile.getX() + tile.getWidth() - x, scaleX, region.getRegionWidth());
+        int bottom = toRegion(tile.getY() - y, scaleY, region.getRegionHeight());
+        int top = toRegion(tile.getY() + tile.getHeight() - y, scaleY, region.getRegionHeight());
+        Gdx.gl.glScissor(region.getRegionX() + left, region.getRegionY() + bottom, right - left, top - bottom);
+    }
+
+    private static int toRegion(float imageOffset, float scale, int regionSize) {
+        return MathUtils.clamp(Math.round(imageOffset * scale), 0, regionSize);
     }
 
-    private static PolygonSprite createPolygonSprite(Texture texture, Polygon polygon) {
-        TextureRegion textureRegion = new TextureRegion(texture);
-        short[] triangles = new EarClippingTriangulator().computeTriangles(polygon.getVertices()).items;
-        PolygonRegion polygonRegion = new PolygonRegion(textureRegion, polygon.getVertices(), triangles);
-        return new PolygonSprite(polygonRegion);
+    /**
+     * @param vertices polygon in image coordinates
+     * @return polygon textured with tile, positioned in image coordinates
+     */
+    private static PolygonSprite createPolygonSprite(TiledTexture.Tile tile, float[] vertices, short[] triangles) {
+        float scaleX = tile.getTexture().getWidth() / tile.getWidth();
+        float scaleY = tile.getTexture().getHeight() / tile.getHeight();
+        float[] localVertices = new float[vertices.length];
+        for (int i = 0; i < vertices.length; i += 2) {
+            localVertices[i] = (vertices[i] - tile.getX()) * scaleX;
+            localVertices[i + 1] = (vertices[i + 1] - tile.getY()) * scaleY;
+        }
+        TextureRegion textureRegion = new TextureRegion(tile.getTexture());
+        PolygonRegion polygonRegion = new PolygonRegion(textureRegion, localVertices, triangles);
+        PolygonSprite polygonSprite = new PolygonSprite(polygonRegion);
+        polygonSprite.setPosition(tile.getX(), tile.getY());
+        polygonSprite.setOrigin(0, 0);
+        polygonSprite.setScale(1f / scaleX, 1f / scaleY);
+        return polygonSprite;
     }
 }
@@ -1,33 +1,92 @@
 package com.github.st1hy.sabre.libgdx.fragments;
 
 import com.badlogic.gdx.Gdx;
-import com.badlogic.gdx.graphics.g2d.SpriteBatch;
-import com.badlogic.gdx.math.Vector3;
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.g2d.PolygonSpriteBatch;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.math.Vector2;
 import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.TimeUtils;
+import com.github.st1hy.coregdx.ViewportCuller;
+import com.github.st1hy.sabre.libgdx.RenderStatistics;
 import com.github.st1hy.sabre.libgdx.ScreenContext;
 import com.github.st1hy.sabre.libgdx.mode.UiMode;
 import com.github.st1hy.sabre.libgdx.model.ImageFragmentModel;
+import com.github.st1hy.sabre.libgdx.model.OperationLog;
 
 import rx.Subscription;
 import rx.concurrency.GdxScheduler;
 import rx.functions.Action1;
 
 public class ImageFragments implements ImageFragmentCreator, ImageFragmentSelector {
+    private static final String TAG = ImageFragments.class.getSimpleName();
     private final ScreenContext model;
     private final Array<ImageFragment> fragments;
+    private final FragmentBakeQueue bakeQueue = new FragmentBakeQueue();
+    private final FragmentSpatialIndex spatialIndex = new FragmentSpatialIndex();
     private ImageFragment currentFragment = null;
+    private int version = 0;
+    private final GpuFragmentPicker gpuPicker = new GpuFragmentPicker();
+    private boolean isGpuPicking = false;
+    private long lastPickNanos = 0;
     private Subscription uiModeSubscription;
+    private Texture placeholderTexture;
+    private TextureRegion placeholder;
 
-    private Vector3 tempVector3 = new Vector3();
+    private Vector2 tempVector2 = new Vector2();
+    private final OperationLog.Target logTarget = new OperationLog.Target() {
+        @Override
+        public void onFragmentInserted(ImageFragmentModel fragmentModel, int index) {
+            ImageFragment fragment = ImageFragment.createNewFragment(fragmentModel, model);
+            if (fragment == null) {
+                model.getFragmentModels().removeIndex(index);
+                return;
+            }
+            fragments.insert(index, fragment);
+            if (index == fragments.size - 1) {
+                spatialIndex.add(fragment);
+            } else {
+                rebuildSpatialIndex();
+            }
+            bakeQueue.addFirst(fragment);
+            version++;
+        }
 
+        @Override
+        public void onFragmentRemoved(ImageFragmentModel fragmentModel, int index) {
+            removeFragment(fragments.get(index));
+        }
+
+        @Override
+        public void onFragmentTransformed(ImageFragmentModel fragmentModel) {
+            ImageFragment fragment = findFragment(fragmentModel);
+            if (fragment == null) return;
+            spatialIndex.update(fragment);
+            version++;
+        }
+    };
+
+    /**
+     * Restored fragments are created as lightweight stubs and baked once they become visible, so screen
+     * is usable as soon as background is uploaded. Models which cannot form a fragment of this image are dropped.
+     */
     public ImageFragments(ScreenContext model) {
         this.model = model;
         Array<ImageFragmentModel> fragmentModels = model.getFragmentModels();
         this.fragments = new Array<>(fragmentModels.size);
-        for (ImageFragmentModel fragmentModel : fragmentModels) {
+        for (int i = 0; i < fragmentModels.size; ) {
+            ImageFragmentModel fragmentModel = fragmentModels.get(i);
             ImageFragment fragment = ImageFragment.createNewFragment(fragmentModel, model);
-            if (fragment == null) throw new UnknownError("Model could not recreate fragment");
+            if (fragment == null) {
+                Gdx.app.error(TAG, "Dropping fragment outside of image");
+                fragmentModels.removeIndex(i);
+                continue;
+            }
             fragments.add(fragment);
+            spatialIndex.add(fragment);
+            i++;
         }
         uiModeSubscription = UiMode.toObservable()
                 .observeOn(GdxScheduler.get())
@@ -48,7 +107,11 @@ public class ImageFragments implements ImageFragmentCreator, ImageFragmentSelect
         ImageFragment fragment = ImageFragment.createNewFragment(vertices, model);
         if (fragment != null) {
             fragments.add(fragment);
+            spatialIndex.add(fragment);
+            bakeQueue.addFirst(fragment);
+            version++;
             model.getFragmentModels().add(fragment.getModel());
+            model.getOperationLog().recordCut(fragment.getModel());
             changeCurrentFragment(fragment);
             notifyNewUiMode(UiMode.MOVE_ELEMENT);
             return true;
@@ -57,30 +120,217 @@ public class ImageFragments implements ImageFragmentCreator, ImageFragmentSelect
         }
     }
 
+    /**
+     * Removes current fragment from the session, it can be restored by {@link #undo()}.
+     *
+     * @return false if there is no current fragment
+     */
+    public boolean deleteCurrent() {
+        if (currentFragment == null) return false;
+        int index = fragments.indexOf(currentFragment, true);
+        ImageFragmentModel fragmentModel = currentFragment.getModel();
+        model.getFragmentModels().removeIndex(index);
+        model.getOperationLog().recordDeleted(fragmentModel, index);
+        removeFragment(currentFragment);
+        Gdx.graphics.requestRendering();
+        return true;
+    }
+
+    /**
+     * @return exporter of the image composed of background and current fragments
+     */
+    public ImageExporter createExporter() {
+        return new ImageExporter(model, fragments);
+    }
+
+    /**
+     * @return exporter of current fragments as separate images
+     */
+    public FragmentExporter createFragmentExporter() {
+        return new FragmentExporter(model);
+    }
+
+    /**
+     * Reverts last cut, delete or fragment transformation. Only fragments affected by it are baked again.
+     *
+     * @return false if there was nothing to undo
+     */
+    public boolean undo() {
+        if (!model.getOperationLog().undo(logTarget)) return false;
+        Gdx.graphics.requestRendering();
+        return true;
+    }
+
+    /**
+     * @return false if there was nothing to redo
+     */
+    public boolean redo() {
+        if (!model.getOperationLog().redo(logTarget)) return false;
+        Gdx.graphics.requestRendering();
+        return true;
+    }
+
+    private void removeFragment(ImageFragment fragment) {
+        if (fragment == currentFragment) {
+            changeCurrentFragment(null);
+            notifyNewUiMode(UiMode.MOVE_CAMERA);
+        }
+        fragments.removeValue(fragment, true);
+        spatialIndex.remove(fragment);
+        bakeQueue.remove(fragment);
+        fragment.dispose();
+        version++;
+    }
+
+    private ImageFragment findFragment(ImageFragmentModel fragmentModel) {
+        for (int i = 0; i < fragments.size; ++i) {
+            ImageFragment fragment = fragments.get(i);
+            if (fragment.getModel() == fragmentModel) return fragment;
+        }
+        return null;
+    }
+
+    /**
+     * Z order of the index follows order of insertion, so fragment inserted below others requires
+     * the index to be built again.
+     */
+    private void rebuildSpatialIndex() {
+        spatialIndex.clear();
+        for (int i = 0; i < fragments.size; ++i) {
+            spatialIndex.add(fragments.get(i));
+        }
+    }
+
+    /**
+     * Bakes queued fragments within frame budget. Requests another frame until queue is drained.
+     * Version changes only when some fragment was actually baked.
+     */
     public void prerender() {
+        if (bakeQueue.size() == 0) return;
+        if (bakeQueue.process() > 0) version++;
+        if (bakeQueue.size() > 0) Gdx.graphics.requestRendering();
+    }
+
+    /**
+     * Draws fragments visible in culler viewport, skipping the others.
+     */
+    public void render(PolygonSpriteBatch batch, ViewportCuller culler, RenderStatistics statistics) {
+        render(batch, culler, statistics, 0, fragments.size);
+    }
+
+    /**
+     * Draws fragments located below current fragment. Draws all fragments if there is no current fragment.
+     */
+    public void renderBelowCurrent(PolygonSpriteBatch batch, ViewportCuller culler, RenderStatistics statistics) {
+        int index = fragments.indexOf(currentFragment, true);
+        render(batch, culler, statistics, 0, index >= 0 ? index : fragments.size);
+    }
+
+    /**
+     * Draws fragments located above current fragment. Draws nothing if there is no current fragment.
+     */
+    public void renderAboveCurrent(PolygonSpriteBatch batch, ViewportCuller culler, RenderStatistics statistics) {
+        int index = fragments.indexOf(currentFragment, true);
+        if (index >= 0) render(batch, culler, statistics, index + 1, fragments.size);
+    }
+
+    public void renderCurrent(PolygonSpriteBatch batch, ViewportCuller culler, RenderStatistics statistics) {
+        int index = fragments.indexOf(currentFragment, true);
+        if (index >= 0) render(batch, culler, statistics, index, index + 1);
+    }
+
+    private void render(PolygonSpriteBatch batch, ViewportCuller culler, RenderStatistics statistics, int from, int to) {
+        for (int i = from; i < to; ++i) {
+            ImageFragment fragment = fragments.get(i);
+            boolean isVisible = fragment.isVisible(culler);
+            statistics.onFragment(isVisible);
+            if (!isVisible) continue;
+            if (fragment.isBaked()) {
+                if (fragment.needsBaking()) {
+                    bakeQueue.add(fragment);
+                    Gdx.graphics.requestRendering();
+                }
+                fragment.render(batch);
+            } else {
+                bakeQueue.add(fragment);
+                Gdx.graphics.requestRendering();
+                fragment.renderPlaceholder(batch, getPlaceholder());
+            }
+        }
+    }
+
+    TextureRegion getPlaceholder() {
+        if (placeholder == null) {
+            Pixmap pixmap = new Pixmap(1, 1, Pixmap.Format.RGBA8888);
+            pixmap.setColor(Color.WHITE);
+            pixmap.fill();
+            placeholderTexture = new Texture(pixmap);
+            pixmap.dispose();
+            placeholder = new TextureRegion(placeholderTexture);
+        }
+        return placeholder;
+    }
+
+    /**
+     * Must be called before background of the screen context is replaced. Fragments are baked again
+     * from the new background once they are visible.
+     */
+    public void onBackgroundChanged() {
         for (int i = 0; i < fragments.size; ++i) {
-            fragments.get(i).prerender();
+            fragments.get(i).onBackgroundChanged();
         }
+        version++;
+        Gdx.graphics.requestRendering();
     }
 
-    public void render(SpriteBatch batch) {
+    /**
+     * Switches how fragments are drawn. Fragments are prepared for the new mode through bake queue,
+     * until then placeholders are drawn.
+     */
+    public void setFragmentRenderMode(FragmentRenderMode mode) {
+        if (model.getFragmentRenderMode() == mode) return;
+        model.setFragmentRenderMode(mode);
+        version++;
         for (int i = 0; i < fragments.size; ++i) {
-            fragments.get(i).render(batch);
+            bakeQueue.add(fragments.get(i));
         }
+        Gdx.graphics.requestRendering();
+    }
+
+    public void setBakeFrameBudgetMillis(float frameBudgetMillis) {
+        bakeQueue.setFrameBudgetMillis(frameBudgetMillis);
     }
 
     public void dispose() {
         uiModeSubscription.unsubscribe();
+        bakeQueue.clear();
+        spatialIndex.clear();
         for (int i = 0; i < fragments.size; ++i) {
             fragments.get(i).dispose();
         }
         fragments.clear();
         fragments.shrink();
+        gpuPicker.dispose();
+        if (placeholderTexture != null) {
+            placeholderTexture.dispose();
+            placeholderTexture = null;
+            placeholder = null;
+        }
+    }
+
+    /**
+     * @return number incremented every time fragments other than current one may look different
+     * (fragment added, selection changed, fragment baked)
+     */
+    public int getVersion() {
+        return version;
     }
 
     private boolean changeCurrentFragment(ImageFragment newImageFragment) {
         boolean isFragmentChanged = isObjectChanged(currentFragment, newImageFragment);
+        if (isFragmentChanged) version++;
         if (currentFragment != null) {
+            spatialIndex.update(currentFragment);
             currentFragment.setElevation(model.getElevation().getElevationLow());
         }
         currentFragment = newImageFragment;
@@ -94,21 +344,50 @@ public class ImageFragments implements ImageFragmentCreator, ImageFragmentSelect
         return a == null && b != null || a != null && b == null || a != null && a != b;
     }
 
+    /**
+     * @param isGpuPicking if true taps are resolved by rendering fragment ids on GL thread,
+     *                     otherwise by spatial index and polygon tests, both on GL thread
+     */
+    public void setGpuPicking(boolean isGpuPicking) {
+        this.isGpuPicking = isGpuPicking;
+    }
+
+    /**
+     * @return time spent resolving last tap into fragment
+     */
+    public long getLastPickTimeNanos() {
+        return lastPickNanos;
+    }
+
     @Override
-    public void onClickedOnImage(float screenX, float screenY) {
-        ImageFragment fragmentToChangeTo = null;
-        if (fragments.size > 0) {
-            tempVector3.set(screenX, screenY, 0).mul(model.getWorldTransformation().getInvTransformation());
-            float x = tempVector3.x;
-            float y = tempVector3.y;
-            for (int i = fragments.size - 1; i >= 0; --i) {
-                ImageFragment fragment = fragments.get(i);
-                if (fragment.isWithinBounds(x, y)) {
-                    fragmentToChangeTo = fragment;
-                    break;
-                }
+    public void onClickedOnImage(final float screenX, final float screenY) {
+        Gdx.app.postRunnable(new Runnable() {
+            @Override
+            public void run() {
+                if (uiModeSubscription.isUnsubscribed()) return;
+                long start = TimeUtils.nanoTime();
+                ImageFragment fragment = isGpuPicking ? pickOnGpu(screenX, screenY) : pickOnCpu(screenX, screenY);
+                lastPickNanos = TimeUtils.nanoTime() - start;
+                selectFragment(fragment);
             }
-        }
+        });
+    }
+
+    private ImageFragment pickOnGpu(float screenX, float screenY) {
+        tempVector2.set(screenX, screenY);
+        model.getWorldTransformation().getInvTransformation().applyTo(tempVector2);
+        return gpuPicker.pick(this, screenX, screenY, tempVector2.x, tempVector2.y);
+    }
+
+    private ImageFragment pickOnCpu(float screenX, float screenY) {
+        if (fragments.size == 0) return null;
+        tempVector2.set(screenX, screenY);
+        model.getWorldTransformation().getInvTransformation().applyTo(tempVector2);
+        if (currentFragment != null) spatialIndex.update(currentFragment);
+        return spatialIndex.pick(tempVector2.x, tempVector2.y);
+    }
+
+    private void selectFragment(ImageFragment fragmentToChangeTo) {
         boolean isFragmentChanged = changeCurrentFragment(fragmentToChangeTo);
         notifyNewUiMode(fragmentToChangeTo != null ? UiMode.MOVE_ELEMENT : UiMode.MOVE_CAMERA);
         if (isFragmentChanged) {
@@ -120,6 +399,13 @@ public class ImageFragments implements ImageFragmentCreator, ImageFragmentSelect
         UiMode.setGlobalMode(mode);
     }
 
+    /**
+     * @return fragments in drawing order, bottom first
+     */
+    Array<ImageFragment> getFragments() {
+        return fragments;
+    }
+
     public ImageFragment getCurrentFragment() {
         return currentFragment;
     }
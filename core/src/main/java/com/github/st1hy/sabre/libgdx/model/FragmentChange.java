@@ -0,0 +1,62 @@
+package com.github.st1hy.sabre.libgdx.model;
+
+/**
+ * New, changed, moved or removed fragment of the session, already encoded so it can be written on another thread.
+ * Fragment which only moved to another position in drawing order is not encoded again.
+ */
+public class FragmentChange {
+    private final ImageFragmentModel model;
+    private final int position;
+    private final byte[] data;
+
+    FragmentChange(ImageFragmentModel model, int position, byte[] data) {
+        this.model = model;
+        this.position = position;
+        this.data = data;
+    }
+
+    /**
+     * @return changed fragment, only to be used as key identifying the fragment outside of GL thread
+     */
+    public ImageFragmentModel getModel() {
+        return model;
+    }
+
+    /**
+     * @return true if fragment was removed from the session
+     */
+    public boolean isRemoved() {
+        return position < 0;
+    }
+
+    /**
+     * @return true if only position of the fragment changed, its data was already saved
+     */
+    public boolean isMoved() {
+        return position >= 0 && data == null;
+    }
+
+    /**
+     * @return index of fragment in drawing order, -1 if it was removed
+     */
+    public int getPosition() {
+        return position;
+    }
+
+    /**
+     * @return fragment written by {@link ScreenModelCodec#encodeFragment(ImageFragmentModel)}, null if it was removed or only moved
+     */
+    public byte[] getData() {
+        return data;
+    }
+
+    /**
+     * @param newer change of the same fragment collected after this one
+     * @return single change with the same effect as this change followed by newer one. Data of this change
+     * is kept when newer change only moved the fragment, so it is written even if this change was not.
+     */
+    public FragmentChange merge(FragmentChange newer) {
+        if (newer.isMoved() && data != null) return new FragmentChange(model, newer.position, data);
+        return newer;
+    }
+}
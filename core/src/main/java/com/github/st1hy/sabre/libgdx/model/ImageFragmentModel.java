@@ -1,12 +1,30 @@
 package com.github.st1hy.sabre.libgdx.model;
 
+import com.badlogic.gdx.math.EarClippingTriangulator;
+import com.badlogic.gdx.math.Rectangle;
+import com.badlogic.gdx.utils.Base64Coder;
+import com.badlogic.gdx.utils.Json;
+import com.badlogic.gdx.utils.JsonValue;
 import com.github.st1hy.coregdx.Transformation;
 
 import java.io.Serializable;
+import java.nio.ByteBuffer;
+
+public class ImageFragmentModel implements Serializable, Json.Serializable {
+    /**
+     * Increment when triangulation of stored vertices changes, so stale triangles are computed again.
+     */
+    static final int TRIANGULATION_VERSION = 1;
 
-public class ImageFragmentModel implements Serializable {
     private float[] vertices;
+    private short[] triangles;
+    private int triangulationVersion;
     private Transformation imageTransformation;
+    private transient Rectangle bounds;
+    /**
+     * Stored triangles were checked against vertices since they were last set.
+     */
+    private transient boolean isTriangulationChecked;
 
     public ImageFragmentModel() {
         imageTransformation = new Transformation();
@@ -21,7 +39,157 @@ public class ImageFragmentModel implements Serializable {
         return vertices;
     }
 
+    /**
+     * @return bounding rectangle of vertices, computed on first call. Returned value must not be modified.
+     */
+    public Rectangle getBounds() {
+        if (bounds == null) {
+            float minX = Float.POSITIVE_INFINITY, minY = Float.POSITIVE_INFINITY;
+            float maxX = Float.NEGATIVE_INFINITY, maxY = Float.NEGATIVE_INFINITY;
+            for (int i = 0; i + 1 < vertices.length; i += 2) {
+                minX = Math.min(minX, vertices[i]);
+                maxX = Math.max(maxX, vertices[i]);
+                minY = Math.min(minY, vertices[i + 1]);
+                maxY = Math.max(maxY, vertices[i + 1]);
+            }
+            bounds = new Rectangle(minX, minY, maxX - minX, maxY - minY);
+        }
+        return bounds;
+    }
+
+    /**
+     * Triangulation of the polygon, stored together with vertices so restored fragments are not triangulated again.
+     * Triangles are computed when missing, created by different triangulation version or not matching vertices.
+     * Stored triangles are checked once after they were read, not on every call.
+     */
+    public short[] getTriangles() {
+        if (!isTriangulationChecked) {
+            if (triangles == null || triangulationVersion != TRIANGULATION_VERSION || !isMatchingVertices(triangles)) {
+                triangles = new EarClippingTriangulator().computeTriangles(vertices).toArray();
+                triangulationVersion = TRIANGULATION_VERSION;
+            }
+            isTriangulationChecked = true;
+        }
+        return triangles;
+    }
+
+    /**
+     * Indices are unsigned shorts, so polygons with up to 65535 vertices can be addressed.
+     */
+    private boolean isMatchingVertices(short[] triangles) {
+        if (triangles.length % 3 != 0) return false;
+        int vertexCount = vertices.length / 2;
+        for (short index : triangles) {
+            if ((index & 0xffff) >= vertexCount) return false;
+        }
+        return true;
+    }
+
     public Transformation getImageTransformation() {
         return imageTransformation;
     }
+
+    /**
+     * Triangles are written as single base64 string of big endian shorts, parsing it is much cheaper
+     * than parsing thousands of separate json numbers.
+     * Vertex array is read directly instead of element by element through reflection.
+     */
+    @Override
+    public void write(Json json) {
+        json.writeValue("vertices", vertices);
+        if (triangles != null) json.writeValue("triangles", encodeTriangles(triangles));
+        json.writeValue("triangulationVersion", triangulationVersion);
+        json.writeValue("imageTransformation", imageTransformation);
+    }
+
+    @Override
+    public void read(Json json, JsonValue jsonData) {
+        JsonValue value = jsonData.get("vertices");
+        vertices = value != null && value.isArray() ? value.asFloatArray() : null;
+        value = jsonData.get("triangles");
+        triangles = value != null && value.isString() ? decodeTriangles(value.asString()) : null;
+        triangulationVersion = jsonData.getInt("triangulationVersion", 0);
+        Transformation transformation = json.readValue("imageTransformation", Transformation.class, jsonData);
+        if (transformation != null) imageTransformation = transformation;
+        bounds = null;
+        isTriangulationChecked = false;
+    }
+
+    /**
+     * @return number of bytes {@link #write(ByteBuffer)} puts into buffer
+     */
+    int getBinarySize() {
+        int size = 4 + 4 * vertices.length + 4 + 4;
+        if (triangles != null) size += 2 * triangles.length;
+        return size + imageTransformation.getBinarySize();
+    }
+
+    /**
+     * Binary form: vertex count and vertices, triangulation version, triangle count (-1 when not computed)
+     * and triangles, then image transformation.
+     */
+    void write(ByteBuffer buffer) {
+        buffer.putInt(vertices.length);
+        buffer.asFloatBuffer().put(vertices);
+        buffer.position(buffer.position() + 4 * vertices.length);
+        buffer.putInt(triangulationVersion);
+        if (triangles != null) {
+            buffer.putInt(triangles.length);
+            buffer.asShortBuffer().put(triangles);
+            buffer.position(buffer.position() + 2 * triangles.length);
+        } else {
+            buffer.putInt(-1);
+        }
+        imageTransformation.write(buffer);
+    }
+
+    /**
+     * @throws IllegalArgumentException if counts stored in buffer do not fit in its remaining data
+     */
+    void read(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0 || 4L * length > buffer.remaining()) throw new IllegalArgumentException("Invalid vertex count: " + length);
+        vertices = new float[length];
+        buffer.asFloatBuffer().get(vertices);
+        buffer.position(buffer.position() + 4 * length);
+        triangulationVersion = buffer.getInt();
+        length = buffer.getInt();
+        if (2L * length > buffer.remaining()) throw new IllegalArgumentException("Invalid triangle count: " + length);
+        if (length >= 0) {
+            triangles = new short[length];
+            buffer.asShortBuffer().get(triangles);
+            buffer.position(buffer.position() + 2 * length);
+        } else {
+            triangles = null;
+        }
+        imageTransformation.read(buffer);
+        bounds = null;
+        isTriangulationChecked = false;
+    }
+
+    private static String encodeTriangles(short[] triangles) {
+        byte[] bytes = new byte[2 * triangles.length];
+        for (int i = 0; i < triangles.length; ++i) {
+            bytes[2 * i] = (byte) (triangles[i] >> 8);
+            bytes[2 * i + 1] = (byte) triangles[i];
+        }
+        return new String(Base64Coder.encode(bytes));
+    }
+
+    /**
+     * @return null if text is not valid encoding, triangles are computed again then
+     */
+    private static short[] decodeTriangles(String text) {
+        byte[] bytes;
+        try {
+            bytes = Base64Coder.decode(text);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        short[] triangles = new short[bytes.length / 2];
+        for (int i = 0; i < triangles.length; ++i) {
+            triangles[i] = (short) ((bytes[2 * i] << 8) | (bytes[2 * i + 1] & 0xff));
+        }
+        return triangles;
+    }
 }
@@ -0,0 +1,11 @@
+package com.github.st1hy.sabre.libgdx.model;
+
+import com.badlogic.gdx.utils.Array;
+
+public interface OnSessionChangedListener {
+
+    /**
+     * Called on GL thread with fragments changed since previous call.
+     */
+    void onSessionChanged(Array<FragmentChange> changes);
+}
@@ -0,0 +1,301 @@
+package com.github.st1hy.sabre.libgdx.model;
+
+import com.badlogic.gdx.math.Affine2;
+import com.badlogic.gdx.utils.Array;
+
+/**
+ * Undo and redo history of the session, kept as log of operations instead of snapshots of the screen model.
+ * <p>
+ * Cut and delete entries keep the fragment model, transform entries keep only the matrix gesture applied
+ * to the fragment in image coordinates. Every few operations an entry also keeps checkpoint with transformations
+ * of all fragments, which undo and redo restore exactly, so rounding of inverted matrices does not accumulate.
+ * Oldest entries are dropped when estimated memory used by the log exceeds the limit.
+ * Must be used on GL thread.
+ */
+public class OperationLog {
+    private static final long DEFAULT_MEMORY_LIMIT = 4 * 1024 * 1024;
+    private static final int DEFAULT_CHECKPOINT_INTERVAL = 32;
+    private static final int ENTRY_SIZE = 64;
+    private static final int CHECKPOINT_FRAGMENT_SIZE = 4 + 6 * 4;
+
+    private final Array<ImageFragmentModel> models;
+    private final Array<Entry> entries = new Array<>();
+    /**
+     * Number of entries currently applied, entries after it can be redone.
+     */
+    private int applied = 0;
+    private long memoryLimit = DEFAULT_MEMORY_LIMIT;
+    private long memoryUsage = 0;
+    private int checkpointInterval = DEFAULT_CHECKPOINT_INTERVAL;
+    private int sinceCheckpoint = 0;
+    private int modificationCount = 0;
+    private final Affine2 tempAffine = new Affine2();
+
+    /**
+     * Receives changes made to the session by undo and redo, after fragment models were updated.
+     */
+    public interface Target {
+        void onFragmentInserted(ImageFragmentModel model, int index);
+
+        void onFragmentRemoved(ImageFragmentModel model, int index);
+
+        void onFragmentTransformed(ImageFragmentModel model);
+    }
+
+    /**
+     * @param models fragments of the session in drawing order, changed by undo and redo
+     */
+    public OperationLog(Array<ImageFragmentModel> models) {
+        this.models = models;
+    }
+
+    /**
+     * Records fragment just added on top of the session.
+     */
+    public void recordCut(ImageFragmentModel model) {
+        record(new Entry(Entry.CUT, model, models.indexOf(model, true), null));
+    }
+
+    /**
+     * Records fragment just removed from the session.
+     *
+     * @param index index fragment had before it was removed
+     */
+    public void recordDeleted(ImageFragmentModel model, int index) {
+        record(new Entry(Entry.DELETE, model, index, null));
+    }
+
+    /**
+     * Records finished gesture of the fragment.
+     *
+     * @param delta matrix the gesture multiplied fragment transformation with, in image coordinates
+     */
+    public void recordTransformed(ImageFragmentModel model, Affine2 delta) {
+        if (delta.isIdt()) return;
+        record(new Entry(Entry.TRANSFORM, model, -1, new Affine2(delta)));
+    }
+
+    private void record(Entry entry) {
+        for (int i = entries.size - 1; i >= applied; --i) {
+            memoryUsage -= entries.get(i).size;
+        }
+        entries.truncate(applied);
+        entries.add(entry);
+        applied = entries.size;
+        modificationCount++;
+        if (checkpointInterval > 0 && ++sinceCheckpoint >= checkpointInterval) {
+            entry.checkpoint = createCheckpoint();
+            entry.size += (long) entry.checkpoint.length * CHECKPOINT_FRAGMENT_SIZE;
+            sinceCheckpoint = 0;
+        }
+        memoryUsage += entry.size;
+        trim();
+    }
+
+    /**
+     * Drops oldest entries until log fits memory limit, keeping at least the newest one.
+     */
+    private void trim() {
+        int count = 0;
+        while (memoryUsage > memoryLimit && count < applied - 1) {
+            memoryUsage -= entries.get(count).size;
+            count++;
+        }
+        if (count == 0) return;
+        entries.removeRange(0, count - 1);
+        applied -= count;
+    }
+
+    public boolean canUndo() {
+        return applied > 0;
+    }
+
+    public boolean canRedo() {
+        return applied < entries.size;
+    }
+
+    /**
+     * Reverts the newest applied operation.
+     *
+     * @return false if there was nothing to undo
+     */
+    public boolean undo(Target target) {
+        if (!canUndo()) return false;
+        Entry entry = entries.get(--applied);
+        modificationCount++;
+        switch (entry.type) {
+            case Entry.CUT:
+                remove(entry, target);
+                break;
+            case Entry.DELETE:
+                insert(entry, target);
+                break;
+            default:
+                tempAffine.set(entry.delta).inv();
+                transform(entry.model, tempAffine, target);
+                break;
+        }
+        if (applied > 0) restore(entries.get(applied - 1).checkpoint, target);
+        return true;
+    }
+
+    /**
+     * Applies again the oldest undone operation.
+     *
+     * @return false if there was nothing to redo
+     */
+    public boolean redo(Target target) {
+        if (!canRedo()) return false;
+        Entry entry = entries.get(applied++);
+        modificationCount++;
+        switch (entry.type) {
+            case Entry.CUT:
+                insert(entry, target);
+                break;
+            case Entry.DELETE:
+                remove(entry, target);
+                break;
+            default:
+                transform(entry.model, entry.delta, target);
+                break;
+        }
+        restore(entry.checkpoint, target);
+        return true;
+    }
+
+    private void insert(Entry entry, Target target) {
+        int index = Math.min(Math.max(entry.index, 0), models.size);
+        models.insert(index, entry.model);
+        target.onFragmentInserted(entry.model, index);
+    }
+
+    private void remove(Entry entry, Target target) {
+        int index = entry.index;
+        if (index < 0 || index >= models.size || models.get(index) != entry.model) {
+            index = models.indexOf(entry.model, true);
+            if (index < 0) return;
+        }
+        models.removeIndex(index);
+        target.onFragmentRemoved(entry.model, index);
+    }
+
+    private static void transform(ImageFragmentModel model, Affine2 delta, Target target) {
+        model.getImageTransformation().applyTransformationRelative(delta);
+        target.onFragmentTransformed(model);
+    }
+
+    private Checkpoint[] createCheckpoint() {
+        Checkpoint[] checkpoint = new Checkpoint[models.size];
+        for (int i = 0; i < models.size; ++i) {
+            ImageFragmentModel model = models.get(i);
+            checkpoint[i] = new Checkpoint(model, model.getImageTransformation().getTransformation());
+        }
+        return checkpoint;
+    }
+
+    /**
+     * Sets transformations stored in checkpoint, when fragments are the same as when it was created.
+     */
+    private void restore(Checkpoint[] checkpoint, Target target) {
+        if (checkpoint == null || checkpoint.length != models.size) return;
+        for (int i = 0; i < checkpoint.length; ++i) {
+            if (checkpoint[i].model != models.get(i)) return;
+        }
+        for (Checkpoint item : checkpoint) {
+            Affine2 current = item.model.getImageTransformation().getTransformation();
+            item.get(tempAffine);
+            if (isSame(current, tempAffine)) continue;
+            item.model.getImageTransformation().setInitialTransformationRaw(tempAffine);
+            item.model.getImageTransformation().setTransformationRaw(tempAffine);
+            target.onFragmentTransformed(item.model);
+        }
+    }
+
+    private static boolean isSame(Affine2 a, Affine2 b) {
+        return a.m00 == b.m00 && a.m01 == b.m01 && a.m02 == b.m02
+                && a.m10 == b.m10 && a.m11 == b.m11 && a.m12 == b.m12;
+    }
+
+    /**
+     * @param bytes estimated memory the log may keep, oldest entries are dropped above it
+     */
+    public void setMemoryLimit(long bytes) {
+        this.memoryLimit = bytes;
+        trim();
+    }
+
+    /**
+     * @param operations number of operations between checkpoints, 0 disables checkpoints
+     */
+    public void setCheckpointInterval(int operations) {
+        this.checkpointInterval = operations;
+    }
+
+    /**
+     * @return number incremented every time an operation is recorded, undone or redone,
+     * so fragments of the session may have changed. Not reset by {@link #clear()}.
+     */
+    public int getModificationCount() {
+        return modificationCount;
+    }
+
+    /**
+     * @return estimated memory kept by the log in bytes
+     */
+    public long getMemoryUsage() {
+        return memoryUsage;
+    }
+
+    public void clear() {
+        entries.clear();
+        applied = 0;
+        memoryUsage = 0;
+        sinceCheckpoint = 0;
+    }
+
+    private static class Entry {
+        private static final int CUT = 0, TRANSFORM = 1, DELETE = 2;
+
+        private final int type;
+        private final ImageFragmentModel model;
+        private final int index;
+        private final Affine2 delta;
+        private long size;
+        /**
+         * Transformations of all fragments after this entry was applied, null for most entries.
+         */
+        private Checkpoint[] checkpoint;
+
+        private Entry(int type, ImageFragmentModel model, int index, Affine2 delta) {
+            this.type = type;
+            this.model = model;
+            this.index = index;
+            this.delta = delta;
+            this.size = delta != null ? ENTRY_SIZE : ENTRY_SIZE + model.getBinarySize();
+        }
+    }
+
+    private static class Checkpoint {
+        private final ImageFragmentModel model;
+        private final float m00, m01, m02, m10, m11, m12;
+
+        private Checkpoint(ImageFragmentModel model, Affine2 transformation) {
+            this.model = model;
+            m00 = transformation.m00;
+            m01 = transformation.m01;
+            m02 = transformation.m02;
+            m10 = transformation.m10;
+            m11 = transformation.m11;
+            m12 = transformation.m12;
+        }
+
+        private void get(Affine2 out) {
+            out.m00 = m00;
+            out.m01 = m01;
+            out.m02 = m02;
+            out.m10 = m10;
+            out.m11 = m11;
+            out.m12 = m12;
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.github.st1hy.sabre.libgdx.model;
+
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.ObjectIntMap;
+import com.badlogic.gdx.utils.ObjectSet;
+
+/**
+ * Finds fragments changed since they were last collected, so session can be saved incrementally.
+ * <p>
+ * Fragment is changed when it was added or its image transformation version differs from the one
+ * it was collected with, only such fragments are encoded. Fragment which only moved to another position
+ * in drawing order, e.g. after fragment below it was deleted, is collected as moved without its data.
+ * Fragments no longer present are collected as removed. Must be used on GL thread.
+ */
+public class ScreenModelChanges {
+    private final ObjectIntMap<ImageFragmentModel> savedVersions = new ObjectIntMap<>();
+    private final ObjectIntMap<ImageFragmentModel> savedPositions = new ObjectIntMap<>();
+
+    /**
+     * Treats current state of the fragments as already saved, e.g. after they were restored from storage.
+     */
+    public void markSaved(Array<ImageFragmentModel> models) {
+        for (int i = 0; i < models.size; ++i) {
+            ImageFragmentModel model = models.get(i);
+            savedVersions.put(model, model.getImageTransformation().getVersion());
+            savedPositions.put(model, i);
+        }
+    }
+
+    /**
+     * @return fragments changed since last call, empty if nothing changed
+     */
+    public Array<FragmentChange> collect(Array<ImageFragmentModel> models) {
+        Array<FragmentChange> changes = new Array<>(false, 4);
+        for (int i = 0; i < models.size; ++i) {
+            ImageFragmentModel model = models.get(i);
+            int version = model.getImageTransformation().getVersion();
+            if (savedVersions.containsKey(model) && savedVersions.get(model, 0) == version) {
+                if (savedPositions.get(model, -1) == i) continue;
+                changes.add(new FragmentChange(model, i, null));
+            } else {
+                model.getTriangles();
+                changes.add(new FragmentChange(model, i, ScreenModelCodec.encodeFragment(model)));
+                savedVersions.put(model, version);
+            }
+            savedPositions.put(model, i);
+        }
+        if (savedVersions.size > models.size) collectRemoved(models, changes);
+        return changes;
+    }
+
+    private void collectRemoved(Array<ImageFragmentModel> models, Array<FragmentChange> changes) {
+        ObjectSet<ImageFragmentModel> present = new ObjectSet<>(models.size);
+        present.addAll(models);
+        Array<ImageFragmentModel> removed = new Array<>(false, 4);
+        for (ImageFragmentModel model : savedVersions.keys()) {
+            if (!present.contains(model)) removed.add(model);
+        }
+        for (int i = 0; i < removed.size; ++i) {
+            ImageFragmentModel model = removed.get(i);
+            savedVersions.remove(model, 0);
+            savedPositions.remove(model, 0);
+            changes.add(new FragmentChange(model, -1, null));
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.github.st1hy.sabre.libgdx.model;
+
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.Json;
+
+import java.io.UnsupportedEncodingException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+
+/**
+ * Compact binary form of {@link ScreenModel}.
+ * <p>
+ * Data starts with magic number and format version, followed by fragment count and fragments, see
+ * {@link ImageFragmentModel#write(ByteBuffer)}. Vertices and triangles are written as length prefixed arrays
+ * in single bulk copy. Data without the header is treated as json written by earlier versions.
+ */
+public enum ScreenModelCodec {
+    ;
+    private static final int MAGIC = 0x53425245;
+    /**
+     * Increment when binary layout changes, data written by newer version is rejected.
+     */
+    private static final int FORMAT_VERSION = 1;
+    private static final int HEADER_SIZE = 4 + 4;
+
+    public static byte[] encode(ScreenModel screenModel) {
+        Array<ImageFragmentModel> models = screenModel.getFragmentModels();
+        int size = HEADER_SIZE + 4;
+        for (int i = 0; i < models.size; ++i) {
+            size += models.get(i).getBinarySize();
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.putInt(MAGIC);
+        buffer.putInt(FORMAT_VERSION);
+        buffer.putInt(models.size);
+        for (int i = 0; i < models.size; ++i) {
+            models.get(i).write(buffer);
+        }
+        return buffer.array();
+    }
+
+    /**
+     * @param data binary data written by {@link #encode(ScreenModel)} or json string in UTF-8
+     * @throws IllegalArgumentException if data is corrupted or written by newer format version
+     */
+    public static ScreenModel decode(byte[] data) {
+        if (!isBinary(data)) return decodeJson(data);
+        ByteBuffer buffer = ByteBuffer.wrap(data);
+        buffer.position(4);
+        int version = buffer.getInt();
+        if (version > FORMAT_VERSION) throw new IllegalArgumentException("Unsupported format version: " + version);
+        try {
+            int count = buffer.getInt();
+            if (count < 0 || count > buffer.remaining()) throw new IllegalArgumentException("Invalid fragment count: " + count);
+            Array<ImageFragmentModel> models = new Array<>(Math.max(1, count));
+            for (int i = 0; i < count; ++i) {
+                ImageFragmentModel model = new ImageFragmentModel();
+                model.read(buffer);
+                models.add(model);
+            }
+            ScreenModel screenModel = new ScreenModel();
+            screenModel.setFragmentModels(models);
+            return screenModel;
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("Truncated screen model data", e);
+        }
+    }
+
+    /**
+     * @return single fragment in binary form, prefixed with format version
+     */
+    public static byte[] encodeFragment(ImageFragmentModel model) {
+        ByteBuffer buffer = ByteBuffer.allocate(4 + model.getBinarySize());
+        buffer.putInt(FORMAT_VERSION);
+        model.write(buffer);
+        return buffer.array();
+    }
+
+    /**
+     * @param data fragment written by {@link #encodeFragment(ImageFragmentModel)}
+     * @throws IllegalArgumentException if data is corrupted or written by newer format version
+     */
+    public static ImageFragmentModel decodeFragment(byte[] data) {
+        ByteBuffer buffer = ByteBuffer.wrap(data);
+        try {
+            int version = buffer.getInt();
+            if (version > FORMAT_VERSION) throw new IllegalArgumentException("Unsupported format version: " + version);
+            ImageFragmentModel model = new ImageFragmentModel();
+            model.read(buffer);
+            return model;
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("Truncated fragment data", e);
+        }
+    }
+
+    private static boolean isBinary(byte[] data) {
+        return data.length >= HEADER_SIZE && ByteBuffer.wrap(data).getInt() == MAGIC;
+    }
+
+    private static ScreenModel decodeJson(byte[] data) {
+        try {
+            return decodeJson(new String(data, "UTF-8"));
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public static ScreenModel decodeJson(String jsonString) {
+        ScreenModel screenModel = new Json().fromJson(ScreenModel.class, jsonString);
+        if (screenModel.getFragmentModels() == null) {
+            screenModel.setFragmentModels(new Array<ImageFragmentModel>());
+        }
+        return screenModel;
+    }
+}
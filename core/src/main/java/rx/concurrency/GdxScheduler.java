@@ -17,23 +17,51 @@
 package rx.concurrency;
 
 import com.badlogic.gdx.Gdx;
-
+import com.badlogic.gdx.utils.TimeUtils;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import rx.Scheduler;
 import rx.Subscription;
 import rx.functions.Action0;
+import rx.plugins.RxJavaPlugins;
 import rx.subscriptions.Subscriptions;
 
 /**
  * Executes work on the Gdx UI thread.
  * This scheduler should only be used with actions that execute quickly.
+ * <p>
+ * Actions from all workers are put into single lock-free queue which is drained by one runnable posted
+ * to Gdx thread. Single drain executes limited amount of work, the rest waits for the next frame.
+ * Delayed actions wait on one shared timer thread before they are queued.
  */
 public final class GdxScheduler extends Scheduler {
+    private static final int MAX_ACTIONS_PER_DRAIN = 64;
+    private static final long MAX_DRAIN_NANOS = 4000000L;
 
     private static final GdxScheduler INSTANCE = new GdxScheduler();
 
+    private final Queue<QueuedAction> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean isDrainPosted = new AtomicBoolean(false);
+    private final AtomicInteger queueDepth = new AtomicInteger();
+    private final Runnable drain = new Runnable() {
+        @Override
+        public void run() {
+            drain();
+        }
+    };
+    private ScheduledExecutorService timer;
+
+    private volatile long executedCount, lastLatencyNanos, maxLatencyNanos;
+
     public static GdxScheduler get() {
         return INSTANCE;
     }
@@ -47,7 +75,116 @@ public final class GdxScheduler extends Scheduler {
         return new GdxWorker();
     }
 
-    private static class GdxWorker extends Worker {
+    /**
+     * @return number of actions waiting for Gdx thread
+     */
+    public int getQueueDepth() {
+        return queueDepth.get();
+    }
+
+    /**
+     * @return number of actions executed since start or last reset
+     */
+    public long getExecutedCount() {
+        return executedCount;
+    }
+
+    /**
+     * @return time the last executed action waited in queue
+     */
+    public long getLastLatencyNanos() {
+        return lastLatencyNanos;
+    }
+
+    /**
+     * @return longest time any action waited in queue since start or last reset
+     */
+    public long getMaxLatencyNanos() {
+        return maxLatencyNanos;
+    }
+
+    public void resetStatistics() {
+        executedCount = 0;
+        lastLatencyNanos = 0;
+        maxLatencyNanos = 0;
+    }
+
+    private synchronized ScheduledExecutorService getTimer() {
+        if (timer == null) {
+            timer = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "gdx-scheduler-timer");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return timer;
+    }
+
+    private void enqueue(QueuedAction action) {
+        queue.offer(action);
+        queueDepth.incrementAndGet();
+        postDrain();
+    }
+
+    private void postDrain() {
+        if (isDrainPosted.compareAndSet(false, true)) {
+            Gdx.app.postRunnable(drain);
+        }
+    }
+
+    private void drain() {
+        isDrainPosted.set(false);
+        long start = TimeUtils.nanoTime();
+        int executed = 0;
+        QueuedAction action;
+        try {
+            while (executed < MAX_ACTIONS_PER_DRAIN && (action = queue.poll()) != null) {
+                queueDepth.decrementAndGet();
+                long now = TimeUtils.nanoTime();
+                long latency = now - action.queuedAtNanos;
+                lastLatencyNanos = latency;
+                if (latency > maxLatencyNanos) maxLatencyNanos = latency;
+                executedCount++;
+                executed++;
+                action.run();
+                if (TimeUtils.nanoTime() - start >= MAX_DRAIN_NANOS) break;
+            }
+        } finally {
+            if (!queue.isEmpty()) postDrain();
+        }
+    }
+
+    private static class QueuedAction {
+        private final GdxWorker worker;
+        private final Action0 action;
+        private final AtomicBoolean run;
+        private final long queuedAtNanos = TimeUtils.nanoTime();
+
+        private QueuedAction(GdxWorker worker, Action0 action, AtomicBoolean run) {
+            this.worker = worker;
+            this.action = action;
+            this.run = run;
+        }
+
+        /**
+         * Errors not handled by the action are reported to Rx error handler and rethrown,
+         * same as actions of other schedulers.
+         */
+        private void run() {
+            if (worker.isUnsubscribed || !run.get()) return;
+            try {
+                action.call();
+            } catch (Throwable e) {
+                RxJavaPlugins.getInstance().getErrorHandler().handleError(e);
+                throw new IllegalStateException("Fatal Exception thrown on Scheduler.Worker thread.", e);
+            }
+        }
+    }
+
+    private class GdxWorker extends Worker {
 
         volatile boolean isUnsubscribed;
 
@@ -58,14 +195,7 @@ public final class GdxScheduler extends Scheduler {
             }
 
             final AtomicBoolean run = new AtomicBoolean(true);
-            Gdx.app.postRunnable(new Runnable() {
-
-                @Override
-                public void run() {
-                    if (!isUnsubscribed && run.get()) action.call();
-                }
-
-            });
+            enqueue(new QueuedAction(this, action, run));
             return Subscriptions.create(new Action0() {
 
                 @Override
@@ -82,32 +212,28 @@ public final class GdxScheduler extends Scheduler {
                 return Subscriptions.empty();
             }
 
-            final AtomicBoolean run = new AtomicBoolean(true);
-
             final long delayInMillis = unit.toMillis(delayTime);
             if (delayInMillis < 0) {
                 throw new IllegalArgumentException("delay may not be negative (in milliseconds): " + delayInMillis);
             }
+            if (delayTime == 0) {
+                return schedule(action);
+            }
 
-            final Thread sleeper = new Thread(new Runnable() {
+            final AtomicBoolean run = new AtomicBoolean(true);
+            final ScheduledFuture<?> future = getTimer().schedule(new Runnable() {
 
                 @Override
                 public void run() {
-                    try {
-                        Thread.sleep(unit.toMillis(delayTime));
-                        if (!isUnsubscribed && run.get()) schedule(action);
-                    } catch (InterruptedException e) {
-                        run.set(false);
-                    }
+                    if (!isUnsubscribed && run.get()) enqueue(new QueuedAction(GdxWorker.this, action, run));
                 }
-            }, "gdx-scheduler-sleeper");
-            sleeper.start();
+            }, delayTime, unit);
 
             return Subscriptions.create(new Action0() {
 
                 @Override
                 public void call() {
-                    sleeper.interrupt();
+                    future.cancel(false);
                     run.set(false);
                 }
 
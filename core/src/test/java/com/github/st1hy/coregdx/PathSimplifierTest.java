@@ -0,0 +1,52 @@
+package com.github.st1hy.coregdx;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertSame;
+
+public class PathSimplifierTest {
+    private final PathSimplifier simplifier = new PathSimplifier();
+
+    @Test
+    public void removesPointsCloseToLine() {
+        float[] points = {0f, 0f, 1f, 0.1f, 2f, -0.1f, 3f, 0.05f, 4f, 0f};
+
+        assertArrayEquals(new float[]{0f, 0f, 4f, 0f}, simplifier.simplify(points, 0.5f), 0f);
+    }
+
+    @Test
+    public void keepsPointsFartherThanTolerance() {
+        float[] points = {0f, 0f, 1f, 2.6f, 2f, 5f, 3f, 2.4f, 4f, 0f};
+
+        assertArrayEquals(new float[]{0f, 0f, 2f, 5f, 4f, 0f}, simplifier.simplify(points, 0.5f), 0f);
+    }
+
+    @Test
+    public void keepsClosedPathEnds() {
+        float[] points = {0f, 0f, 10f, 0f, 10f, 10f, 0f, 10f, 0f, 0f};
+
+        assertArrayEquals(points, simplifier.simplify(points, 1f), 0f);
+    }
+
+    @Test
+    public void returnsShortPathsAndZeroToleranceUnchanged() {
+        float[] line = {0f, 0f, 1f, 1f};
+        float[] points = {0f, 0f, 1f, 0f, 2f, 0f};
+
+        assertSame(line, simplifier.simplify(line, 1f));
+        assertSame(points, simplifier.simplify(points, 0f));
+    }
+
+    @Test
+    public void reusesInstanceForPathsOfDifferentLength() {
+        float[] longPath = new float[200];
+        for (int i = 0; i < 100; ++i) {
+            longPath[2 * i] = i;
+        }
+        float[] shortPath = {0f, 0f, 1f, 3f, 2f, 0f};
+
+        assertArrayEquals(new float[]{0f, 0f, 99f, 0f}, simplifier.simplify(longPath, 0.1f), 0f);
+        assertArrayEquals(shortPath, simplifier.simplify(shortPath, 0.1f), 0f);
+    }
+}
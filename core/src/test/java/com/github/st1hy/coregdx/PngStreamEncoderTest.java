@@ -0,0 +1,118 @@
+package com.github.st1hy.coregdx;
+
+import org.junit.Test;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import javax.imageio.ImageIO;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class PngStreamEncoderTest {
+
+    @Test
+    public void writtenImageDecodesToSamePixels() throws IOException {
+        assertRoundTrip(7, 5);
+    }
+
+    @Test
+    public void imageLargerThanSingleChunkDecodes() throws IOException {
+        assertRoundTrip(300, 200);
+    }
+
+    @Test
+    public void rowIsReadFromBufferPosition() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        PngStreamEncoder encoder = new PngStreamEncoder(out, 1, 1);
+        ByteBuffer pixels = ByteBuffer.wrap(new byte[]{9, 9, 10, 20, 30, 40, 9});
+        pixels.position(2);
+        encoder.writeRow(pixels);
+        encoder.close();
+
+        assertEquals(6, pixels.position());
+        assertEquals(argb(10, 20, 30, 40), decode(out).getRGB(0, 0));
+    }
+
+    @Test
+    public void countsRemainingRows() throws IOException {
+        PngStreamEncoder encoder = new PngStreamEncoder(new ByteArrayOutputStream(), 2, 3);
+        assertEquals(3, encoder.getRemainingRows());
+        encoder.writeRow(ByteBuffer.allocate(8));
+        assertEquals(2, encoder.getRemainingRows());
+    }
+
+    @Test
+    public void closingIncompleteImageFailsAndClosesStream() throws IOException {
+        CloseTrackingStream out = new CloseTrackingStream();
+        PngStreamEncoder encoder = new PngStreamEncoder(out, 2, 2);
+        encoder.writeRow(ByteBuffer.allocate(8));
+        try {
+            encoder.close();
+            fail("Closed image with missing rows");
+        } catch (IllegalStateException expected) {
+        }
+        assertTrue(out.isClosed);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void rejectsRowsBeyondHeight() throws IOException {
+        PngStreamEncoder encoder = new PngStreamEncoder(new ByteArrayOutputStream(), 1, 1);
+        encoder.writeRow(ByteBuffer.allocate(4));
+        encoder.writeRow(ByteBuffer.allocate(4));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsEmptyImage() throws IOException {
+        new PngStreamEncoder(new ByteArrayOutputStream(), 0, 1);
+    }
+
+    private static void assertRoundTrip(int width, int height) throws IOException {
+        byte[] pixels = new byte[width * height * 4];
+        new Random(42).nextBytes(pixels);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        PngStreamEncoder encoder = new PngStreamEncoder(out, width, height);
+        ByteBuffer buffer = ByteBuffer.wrap(pixels);
+        for (int row = 0; row < height; ++row) {
+            encoder.writeRow(buffer);
+        }
+        encoder.close();
+
+        BufferedImage image = decode(out);
+        assertEquals(width, image.getWidth());
+        assertEquals(height, image.getHeight());
+        for (int y = 0; y < height; ++y) {
+            for (int x = 0; x < width; ++x) {
+                int i = (y * width + x) * 4;
+                assertEquals("Pixel " + x + "," + y, argb(pixels[i], pixels[i + 1], pixels[i + 2], pixels[i + 3]),
+                        image.getRGB(x, y));
+            }
+        }
+    }
+
+    private static BufferedImage decode(ByteArrayOutputStream out) throws IOException {
+        BufferedImage image = ImageIO.read(new ByteArrayInputStream(out.toByteArray()));
+        if (image == null) throw new IOException("Not a PNG");
+        return image;
+    }
+
+    private static int argb(int r, int g, int b, int a) {
+        return (a & 0xff) << 24 | (r & 0xff) << 16 | (g & 0xff) << 8 | b & 0xff;
+    }
+
+    private static class CloseTrackingStream extends ByteArrayOutputStream {
+        private boolean isClosed = false;
+
+        @Override
+        public void close() throws IOException {
+            isClosed = true;
+            super.close();
+        }
+    }
+}
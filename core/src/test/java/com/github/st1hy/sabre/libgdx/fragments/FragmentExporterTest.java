@@ -0,0 +1,48 @@
+package com.github.st1hy.sabre.libgdx.fragments;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class FragmentExporterTest {
+    private static final int TILE_SIZE = 2048;
+
+    @Test
+    public void narrowTallFragmentIsCoveredByStrips() {
+        int width = FragmentExporter.STRIP_BYTES / (TILE_SIZE * 4) - 28;
+        assertCovered(width, 5000);
+    }
+
+    @Test
+    public void wideFragmentIsCoveredByStrips() {
+        assertCovered(3000, 1000);
+    }
+
+    @Test
+    public void singlePixelFragmentHasSingleStrip() {
+        FragmentExporter.FragmentArea area = new FragmentExporter.FragmentArea(null, 0, 0, 1, 1, 1f, 1f, TILE_SIZE);
+        assertEquals(1, area.getStripCount());
+        assertEquals(1, area.getStripTop(0));
+        assertEquals(0, area.getStripBottom(0));
+    }
+
+    /**
+     * Strips go top to bottom without gaps, each fits single tile and strip buffer.
+     */
+    private static void assertCovered(int width, int height) {
+        FragmentExporter.FragmentArea area = new FragmentExporter.FragmentArea(null, 0, 0, width, height, 1f, 1f,
+                TILE_SIZE);
+        int expectedTop = height;
+        for (int strip = 0; strip < area.getStripCount(); ++strip) {
+            int top = area.getStripTop(strip);
+            int bottom = area.getStripBottom(strip);
+            assertEquals(expectedTop, top);
+            assertTrue(bottom < top);
+            assertTrue(top - bottom <= TILE_SIZE);
+            assertTrue((top - bottom) * width * 4 <= Math.max(FragmentExporter.STRIP_BYTES, width * 4));
+            expectedTop = bottom;
+        }
+        assertEquals(0, expectedTop);
+    }
+}
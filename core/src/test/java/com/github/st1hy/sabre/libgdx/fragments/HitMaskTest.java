@@ -0,0 +1,54 @@
+package com.github.st1hy.sabre.libgdx.fragments;
+
+import com.badlogic.gdx.math.Intersector;
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.math.Rectangle;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class HitMaskTest {
+
+    @Test
+    public void matchesExactTestOfStarPolygon() {
+        int count = 200;
+        float[] vertices = new float[2 * count];
+        for (int i = 0; i < count; ++i) {
+            float angle = MathUtils.PI2 * i / count;
+            float radius = i % 2 == 0 ? 500f : 200f;
+            vertices[2 * i] = 600f + radius * MathUtils.cos(angle);
+            vertices[2 * i + 1] = 550f + radius * MathUtils.sin(angle);
+        }
+        Rectangle bounds = new Rectangle(100f, 50f, 1000f, 1000f);
+        HitMask mask = HitMask.create(vertices, bounds);
+
+        for (float x = 90f; x < 1110f; x += 7.3f) {
+            for (float y = 40f; y < 1060f; y += 6.1f) {
+                boolean expected = Intersector.isPointInPolygon(vertices, 0, vertices.length, x, y);
+                assertEquals("At " + x + ", " + y, expected, mask.contains(x, y));
+            }
+        }
+    }
+
+    @Test
+    public void pointsOutsideOfBoundsAreOutside() {
+        float[] square = {0f, 0f, 100f, 0f, 100f, 100f, 0f, 100f};
+        HitMask mask = HitMask.create(square, new Rectangle(0f, 0f, 100f, 100f));
+
+        assertTrue(mask.contains(50f, 50f));
+        assertFalse(mask.contains(-1f, 50f));
+        assertFalse(mask.contains(50f, 101f));
+    }
+
+    @Test
+    public void handlesPolygonSmallerThanCell() {
+        float[] triangle = {0f, 0f, 0.5f, 0f, 0f, 0.5f};
+        HitMask mask = HitMask.create(triangle, new Rectangle(0f, 0f, 0.5f, 0.5f));
+
+        assertTrue(mask.contains(0.1f, 0.1f));
+        assertFalse(mask.contains(0.4f, 0.4f));
+    }
+}
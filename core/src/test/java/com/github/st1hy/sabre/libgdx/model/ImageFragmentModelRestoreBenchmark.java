@@ -0,0 +1,82 @@
+package com.github.st1hy.sabre.libgdx.model;
+
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.Json;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+
+/**
+ * Compares restoring a session with stored triangulation against restoring a session saved without it,
+ * which triangulates every fragment again.
+ * Left out of default test run, run with {@code gradle benchmark}.
+ */
+public class ImageFragmentModelRestoreBenchmark {
+    private static final int FRAGMENTS = 300;
+    private static final int VERTICES = 400;
+    private static final int WARM_UP = 2;
+    private static final int RUNS = 5;
+
+    @Test
+    public void restoreSession() {
+        Json json = new Json();
+        String withTriangles = json.toJson(createSession(true));
+        String withoutTriangles = json.toJson(createSession(false));
+
+        for (int i = 0; i < WARM_UP; ++i) {
+            restore(withTriangles);
+            restore(withoutTriangles);
+        }
+        long stored = 0, triangulated = 0;
+        for (int i = 0; i < RUNS; ++i) {
+            long start = System.nanoTime();
+            restore(withTriangles);
+            stored += System.nanoTime() - start;
+            start = System.nanoTime();
+            restore(withoutTriangles);
+            triangulated += System.nanoTime() - start;
+        }
+        System.out.printf("Restore of %d fragments x %d vertices: stored triangles %.2f ms, triangulated %.2f ms%n",
+                FRAGMENTS, VERTICES, stored / 1e6 / RUNS, triangulated / 1e6 / RUNS);
+
+        Array<ImageFragmentModel> a = restore(withTriangles).getFragmentModels();
+        Array<ImageFragmentModel> b = restore(withoutTriangles).getFragmentModels();
+        for (int i = 0; i < a.size; ++i) {
+            assertArrayEquals(a.get(i).getTriangles(), b.get(i).getTriangles());
+        }
+    }
+
+    private static ScreenModel restore(String jsonString) {
+        ScreenModel screenModel = new Json().fromJson(ScreenModel.class, jsonString);
+        for (ImageFragmentModel model : screenModel.getFragmentModels()) {
+            model.getTriangles();
+        }
+        return screenModel;
+    }
+
+    /**
+     * Star shaped, concave polygons, so triangulation cannot take convex shortcuts.
+     */
+    private static ScreenModel createSession(boolean triangulate) {
+        MathUtils.random.setSeed(1);
+        Array<ImageFragmentModel> models = new Array<>(FRAGMENTS);
+        for (int i = 0; i < FRAGMENTS; ++i) {
+            float centerX = MathUtils.random(0f, 4000f), centerY = MathUtils.random(0f, 3000f);
+            float[] vertices = new float[2 * VERTICES];
+            for (int j = 0; j < VERTICES; ++j) {
+                float angle = MathUtils.PI2 * j / VERTICES;
+                float radius = (j % 2 == 0 ? 300f : 150f) + MathUtils.random(20f);
+                vertices[2 * j] = centerX + radius * MathUtils.cos(angle);
+                vertices[2 * j + 1] = centerY + radius * MathUtils.sin(angle);
+            }
+            ImageFragmentModel model = new ImageFragmentModel(vertices);
+            if (triangulate) model.getTriangles();
+            models.add(model);
+        }
+        ScreenModel screenModel = new ScreenModel();
+        screenModel.setFragmentModels(models);
+        return screenModel;
+    }
+}
@@ -0,0 +1,125 @@
+package com.github.st1hy.sabre.libgdx.model;
+
+import com.badlogic.gdx.math.Rectangle;
+import com.badlogic.gdx.utils.Json;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class ImageFragmentModelTest {
+    private static final float[] SQUARE = {0f, 0f, 10f, 0f, 10f, 10f, 0f, 10f};
+
+    @Test
+    public void binaryRoundTripKeepsTriangulation() {
+        ImageFragmentModel model = new ImageFragmentModel(SQUARE.clone());
+        short[] triangles = model.getTriangles();
+        ByteBuffer buffer = ByteBuffer.allocate(model.getBinarySize());
+        model.write(buffer);
+        buffer.flip();
+
+        ImageFragmentModel restored = new ImageFragmentModel();
+        restored.read(buffer);
+
+        assertEquals(0, buffer.remaining());
+        assertArrayEquals(SQUARE, restored.getVertices(), 0f);
+        assertArrayEquals(triangles, restored.getTriangles());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void readRejectsVertexCountOverflowingInt() {
+        ByteBuffer buffer = ByteBuffer.allocate(64);
+        buffer.putInt(0x40000001);
+        buffer.rewind();
+        new ImageFragmentModel().read(buffer);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void readRejectsTriangleCountLargerThanData() {
+        ByteBuffer buffer = ByteBuffer.allocate(4 + 4 * SQUARE.length + 4 + 4 + 8);
+        buffer.putInt(SQUARE.length);
+        for (float value : SQUARE) buffer.putFloat(value);
+        buffer.putInt(ImageFragmentModel.TRIANGULATION_VERSION);
+        buffer.putInt(6);
+        buffer.rewind();
+        new ImageFragmentModel().read(buffer);
+    }
+
+    @Test
+    public void storedTrianglesAddressVerticesAsUnsignedShorts() {
+        int vertexCount = 40000;
+        short[] triangles = {0, (short) 39998, (short) 39999};
+        ByteBuffer buffer = ByteBuffer.allocate(4 + 8 * vertexCount + 4 + 4 + 2 * triangles.length + 1);
+        buffer.putInt(2 * vertexCount);
+        for (int i = 0; i < vertexCount; ++i) {
+            buffer.putFloat(i).putFloat(i % 2);
+        }
+        buffer.putInt(ImageFragmentModel.TRIANGULATION_VERSION);
+        buffer.putInt(triangles.length);
+        for (short index : triangles) buffer.putShort(index);
+        buffer.put((byte) 0);
+        buffer.rewind();
+
+        ImageFragmentModel model = new ImageFragmentModel();
+        model.read(buffer);
+
+        short[] restored = model.getTriangles();
+        assertArrayEquals(triangles, restored);
+        assertSame(restored, model.getTriangles());
+    }
+
+    @Test
+    public void legacyJsonWithoutTrianglesIsTriangulated() {
+        ImageFragmentModel model = new Json().fromJson(ImageFragmentModel.class,
+                "{vertices:[0,0,10,0,10,10,0,10]}");
+
+        assertArrayEquals(SQUARE, model.getVertices(), 0f);
+        assertEquals(6, model.getTriangles().length);
+        assertNotNull(model.getImageTransformation());
+    }
+
+    @Test
+    public void invalidStoredTrianglesAreComputedAgain() {
+        ImageFragmentModel model = new Json().fromJson(ImageFragmentModel.class,
+                "{vertices:[0,0,10,0,10,10,0,10],triangles:\"AAEACQAC\",triangulationVersion:"
+                        + ImageFragmentModel.TRIANGULATION_VERSION + "}");
+
+        short[] triangles = model.getTriangles();
+        assertEquals(6, triangles.length);
+        for (short index : triangles) {
+            assertTrue(index >= 0 && index < 4);
+        }
+    }
+
+    @Test
+    public void jsonRoundTripKeepsTriangulation() {
+        ImageFragmentModel model = new ImageFragmentModel(SQUARE.clone());
+        short[] triangles = model.getTriangles();
+        Json json = new Json();
+
+        ImageFragmentModel restored = json.fromJson(ImageFragmentModel.class, json.toJson(model));
+
+        assertArrayEquals(SQUARE, restored.getVertices(), 0f);
+        assertArrayEquals(triangles, restored.getTriangles());
+    }
+
+    @Test
+    public void boundsAreComputedAgainAfterRead() {
+        ImageFragmentModel model = new ImageFragmentModel(SQUARE.clone());
+        assertEquals(new Rectangle(0, 0, 10, 10), model.getBounds());
+        ImageFragmentModel other = new ImageFragmentModel(new float[]{5f, 5f, 20f, 5f, 5f, 30f});
+        ByteBuffer buffer = ByteBuffer.allocate(other.getBinarySize());
+        other.write(buffer);
+        buffer.flip();
+
+        model.read(buffer);
+
+        assertEquals(new Rectangle(5, 5, 15, 25), model.getBounds());
+    }
+}
@@ -0,0 +1,178 @@
+package com.github.st1hy.sabre.libgdx.model;
+
+import com.badlogic.gdx.math.Affine2;
+import com.badlogic.gdx.utils.Array;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class OperationLogTest {
+    private final Array<ImageFragmentModel> models = new Array<>();
+    private final RecordingTarget target = new RecordingTarget();
+    private OperationLog log;
+
+    @Before
+    public void setUp() {
+        log = new OperationLog(models);
+    }
+
+    @Test
+    public void undoAndRedoCut() {
+        ImageFragmentModel model = cut();
+
+        assertTrue(log.undo(target));
+        assertEquals(0, models.size);
+        assertEquals(1, target.removed);
+        assertTrue(log.redo(target));
+        assertSame(model, models.get(0));
+        assertEquals(1, target.inserted);
+    }
+
+    @Test
+    public void undoDeleteRestoresFragmentAtItsIndex() {
+        ImageFragmentModel a = cut(), b = cut(), c = cut();
+        models.removeIndex(1);
+        log.recordDeleted(b, 1);
+
+        log.undo(target);
+
+        assertSame(a, models.get(0));
+        assertSame(b, models.get(1));
+        assertSame(c, models.get(2));
+        log.redo(target);
+        assertEquals(2, models.size);
+        assertEquals(-1, models.indexOf(b, true));
+    }
+
+    @Test
+    public void undoAndRedoTransformation() {
+        ImageFragmentModel model = cut();
+        Affine2 delta = new Affine2().setToTrnRotScl(10f, 20f, 30f, 2f, 2f);
+        model.getImageTransformation().applyTransformationRelative(delta);
+        log.recordTransformed(model, delta);
+
+        log.undo(target);
+        assertTrue(isClose(new Affine2(), model.getImageTransformation().getTransformation()));
+        log.redo(target);
+        assertTrue(isClose(delta, model.getImageTransformation().getTransformation()));
+        assertEquals(2, target.transformed);
+    }
+
+    @Test
+    public void identityGestureIsNotRecorded() {
+        ImageFragmentModel model = cut();
+        log.recordTransformed(model, new Affine2());
+
+        log.undo(target);
+        assertFalse(log.canUndo());
+    }
+
+    @Test
+    public void newOperationDropsRedoHistory() {
+        cut();
+        log.undo(target);
+        assertTrue(log.canRedo());
+
+        cut();
+
+        assertFalse(log.canRedo());
+        assertFalse(log.redo(target));
+    }
+
+    @Test
+    public void checkpointRestoresExactTransformations() {
+        log.setCheckpointInterval(2);
+        ImageFragmentModel model = cut();
+        Affine2 delta = new Affine2().setToTrnRotScl(0.1f, 0.2f, 7f, 1.1f, 0.9f);
+        for (int i = 0; i < 10; ++i) {
+            model.getImageTransformation().applyTransformationRelative(delta);
+            log.recordTransformed(model, delta);
+        }
+        Affine2 expected = new Affine2(model.getImageTransformation().getTransformation());
+        for (int i = 0; i < 6; ++i) log.undo(target);
+        for (int i = 0; i < 6; ++i) log.redo(target);
+
+        Affine2 actual = model.getImageTransformation().getTransformation();
+        assertEquals(expected.m00, actual.m00, 0f);
+        assertEquals(expected.m01, actual.m01, 0f);
+        assertEquals(expected.m02, actual.m02, 0f);
+        assertEquals(expected.m10, actual.m10, 0f);
+        assertEquals(expected.m11, actual.m11, 0f);
+        assertEquals(expected.m12, actual.m12, 0f);
+    }
+
+    @Test
+    public void memoryLimitDropsOldestEntries() {
+        for (int i = 0; i < 10; ++i) cut();
+        long usage = log.getMemoryUsage();
+
+        log.setMemoryLimit(usage / 2);
+
+        assertTrue(log.getMemoryUsage() <= usage / 2);
+        int undone = 0;
+        while (log.undo(target)) undone++;
+        assertTrue(undone > 0 && undone < 10);
+        assertEquals(10 - undone, models.size);
+    }
+
+    @Test
+    public void modificationCountChangesOnRecordUndoAndRedo() {
+        int count = log.getModificationCount();
+        cut();
+        assertEquals(count + 1, log.getModificationCount());
+        log.undo(target);
+        assertEquals(count + 2, log.getModificationCount());
+        log.redo(target);
+        assertEquals(count + 3, log.getModificationCount());
+        log.undo(target);
+        log.undo(target);
+        assertEquals(count + 4, log.getModificationCount());
+    }
+
+    @Test
+    public void clearForgetsHistory() {
+        cut();
+        log.clear();
+
+        assertFalse(log.canUndo());
+        assertFalse(log.canRedo());
+        assertEquals(0, log.getMemoryUsage());
+    }
+
+    private ImageFragmentModel cut() {
+        ImageFragmentModel model = new ImageFragmentModel(new float[]{0f, 0f, 10f, 0f, 0f, 10f});
+        models.add(model);
+        log.recordCut(model);
+        return model;
+    }
+
+    private static boolean isClose(Affine2 a, Affine2 b) {
+        float e = 1e-4f;
+        return Math.abs(a.m00 - b.m00) < e && Math.abs(a.m01 - b.m01) < e && Math.abs(a.m02 - b.m02) < e
+                && Math.abs(a.m10 - b.m10) < e && Math.abs(a.m11 - b.m11) < e && Math.abs(a.m12 - b.m12) < e;
+    }
+
+    private static class RecordingTarget implements OperationLog.Target {
+        private int inserted, removed, transformed;
+
+        @Override
+        public void onFragmentInserted(ImageFragmentModel model, int index) {
+            inserted++;
+        }
+
+        @Override
+        public void onFragmentRemoved(ImageFragmentModel model, int index) {
+            removed++;
+        }
+
+        @Override
+        public void onFragmentTransformed(ImageFragmentModel model) {
+            transformed++;
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.github.st1hy.sabre.libgdx.model;
+
+import com.badlogic.gdx.math.Affine2;
+import com.badlogic.gdx.utils.Array;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class ScreenModelChangesTest {
+    private final Array<ImageFragmentModel> models = new Array<>();
+    private final ScreenModelChanges changes = new ScreenModelChanges();
+
+    @Test
+    public void newFragmentIsEncoded() {
+        ImageFragmentModel model = add();
+
+        Array<FragmentChange> collected = changes.collect(models);
+
+        assertEquals(1, collected.size);
+        assertSame(model, collected.get(0).getModel());
+        assertEquals(0, collected.get(0).getPosition());
+        assertNotNull(collected.get(0).getData());
+        assertEquals(0, changes.collect(models).size);
+    }
+
+    @Test
+    public void fragmentsAboveDeletedOneAreOnlyMoved() {
+        ImageFragmentModel a = add(), b = add(), c = add();
+        changes.markSaved(models);
+        models.removeValue(a, true);
+
+        Array<FragmentChange> collected = changes.collect(models);
+
+        assertEquals(3, collected.size);
+        for (FragmentChange change : collected) {
+            if (change.getModel() == a) {
+                assertTrue(change.isRemoved());
+            } else {
+                assertTrue(change.isMoved());
+                assertEquals(change.getModel() == b ? 0 : 1, change.getPosition());
+            }
+        }
+        assertEquals(0, changes.collect(models).size);
+        assertSame(c, models.get(1));
+    }
+
+    @Test
+    public void transformedFragmentIsEncodedAgain() {
+        ImageFragmentModel model = add();
+        changes.markSaved(models);
+        model.getImageTransformation().applyTransformationRelative(new Affine2().setToTranslation(5f, 5f));
+
+        Array<FragmentChange> collected = changes.collect(models);
+
+        assertEquals(1, collected.size);
+        assertFalse(collected.get(0).isMoved());
+        assertNotNull(collected.get(0).getData());
+    }
+
+    @Test
+    public void moveMergedIntoUnwrittenChangeKeepsData() {
+        ImageFragmentModel a = add(), b = add();
+        FragmentChange written = changes.collect(models).get(1);
+        models.removeValue(a, true);
+        FragmentChange moved = changes.collect(models).get(0);
+        assertTrue(moved.isMoved());
+
+        FragmentChange merged = written.merge(moved);
+
+        assertSame(b, merged.getModel());
+        assertEquals(0, merged.getPosition());
+        assertSame(written.getData(), merged.getData());
+        assertFalse(merged.isMoved());
+    }
+
+    private ImageFragmentModel add() {
+        ImageFragmentModel model = new ImageFragmentModel(new float[]{0f, 0f, 10f, 0f, 0f, 10f});
+        models.add(model);
+        return model;
+    }
+}
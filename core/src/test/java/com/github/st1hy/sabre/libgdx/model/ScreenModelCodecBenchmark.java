@@ -0,0 +1,101 @@
+package com.github.st1hy.sabre.libgdx.model;
+
+import com.badlogic.gdx.math.Affine2;
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.math.Matrix3;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.Json;
+
+import org.junit.Test;
+
+import java.nio.charset.Charset;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Compares size, encode and decode time of binary screen model against json.
+ * Left out of default test run, run with {@code gradle benchmark}.
+ */
+public class ScreenModelCodecBenchmark {
+    private static final int FRAGMENTS = 300;
+    private static final int VERTICES = 400;
+    private static final int WARM_UP = 2;
+    private static final int RUNS = 5;
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    @Test
+    public void encodeAndDecode() {
+        ScreenModel session = createSession();
+        Json json = new Json();
+
+        for (int i = 0; i < WARM_UP; ++i) {
+            ScreenModelCodec.decode(ScreenModelCodec.encode(session));
+            ScreenModelCodec.decode(json.toJson(session).getBytes(UTF_8));
+        }
+        long binaryEncode = 0, binaryDecode = 0, jsonEncode = 0, jsonDecode = 0;
+        byte[] binary = null, text = null;
+        for (int i = 0; i < RUNS; ++i) {
+            long start = System.nanoTime();
+            binary = ScreenModelCodec.encode(session);
+            binaryEncode += System.nanoTime() - start;
+            start = System.nanoTime();
+            ScreenModelCodec.decode(binary);
+            binaryDecode += System.nanoTime() - start;
+            start = System.nanoTime();
+            text = json.toJson(session).getBytes(UTF_8);
+            jsonEncode += System.nanoTime() - start;
+            start = System.nanoTime();
+            ScreenModelCodec.decode(text);
+            jsonDecode += System.nanoTime() - start;
+        }
+        System.out.printf("Session of %d fragments x %d vertices:%n", FRAGMENTS, VERTICES);
+        System.out.printf("  binary %d kB, encode %.2f ms, decode %.2f ms%n",
+                binary.length / 1024, binaryEncode / 1e6 / RUNS, binaryDecode / 1e6 / RUNS);
+        System.out.printf("  json   %d kB, encode %.2f ms, decode %.2f ms%n",
+                text.length / 1024, jsonEncode / 1e6 / RUNS, jsonDecode / 1e6 / RUNS);
+
+        assertSameSession(session, ScreenModelCodec.decode(binary));
+        assertSameSession(session, ScreenModelCodec.decode(text));
+    }
+
+    private static void assertSameSession(ScreenModel expected, ScreenModel actual) {
+        Array<ImageFragmentModel> a = expected.getFragmentModels();
+        Array<ImageFragmentModel> b = actual.getFragmentModels();
+        assertEquals(a.size, b.size);
+        for (int i = 0; i < a.size; ++i) {
+            assertArrayEquals(a.get(i).getVertices(), b.get(i).getVertices(), 0f);
+            assertArrayEquals(a.get(i).getTriangles(), b.get(i).getTriangles());
+            Affine2 m = a.get(i).getImageTransformation().getTransformation();
+            Affine2 n = b.get(i).getImageTransformation().getTransformation();
+            assertArrayEquals(new float[]{m.m00, m.m01, m.m10, m.m11}, new float[]{n.m00, n.m01, n.m10, n.m11}, 0f);
+            assertEquals(m.m02, n.m02, 1f / 256);
+            assertEquals(m.m12, n.m12, 1f / 256);
+        }
+    }
+
+    private static ScreenModel createSession() {
+        MathUtils.random.setSeed(1);
+        Array<ImageFragmentModel> models = new Array<>(FRAGMENTS);
+        Matrix3 matrix = new Matrix3();
+        for (int i = 0; i < FRAGMENTS; ++i) {
+            float centerX = MathUtils.random(0f, 4000f), centerY = MathUtils.random(0f, 3000f);
+            float[] vertices = new float[2 * VERTICES];
+            for (int j = 0; j < VERTICES; ++j) {
+                float angle = MathUtils.PI2 * j / VERTICES;
+                float radius = (j % 2 == 0 ? 300f : 150f) + MathUtils.random(20f);
+                vertices[2 * j] = centerX + radius * MathUtils.cos(angle);
+                vertices[2 * j + 1] = centerY + radius * MathUtils.sin(angle);
+            }
+            ImageFragmentModel model = new ImageFragmentModel(vertices);
+            model.getTriangles();
+            matrix.setToTranslation(MathUtils.random(-500f, 500f), MathUtils.random(-500f, 500f))
+                    .rotate(MathUtils.random(360f)).scale(MathUtils.random(0.5f, 2f), MathUtils.random(0.5f, 2f));
+            model.getImageTransformation().applyTransformationRelative(matrix);
+            models.add(model);
+        }
+        ScreenModel screenModel = new ScreenModel();
+        screenModel.setFragmentModels(models);
+        return screenModel;
+    }
+}
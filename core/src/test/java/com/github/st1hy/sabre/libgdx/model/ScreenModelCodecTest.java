@@ -0,0 +1,143 @@
+package com.github.st1hy.sabre.libgdx.model;
+
+import com.badlogic.gdx.math.Affine2;
+import com.badlogic.gdx.math.Matrix3;
+import com.badlogic.gdx.utils.Array;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ScreenModelCodecTest {
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final float[] TRIANGLE = {0f, 0f, 100f, 0f, 0f, 50f};
+    private static final float[] SQUARE = {0f, 0f, 10f, 0f, 10f, 10f, 0f, 10f};
+
+    @Test
+    public void binaryRoundTrip() {
+        ScreenModel session = createSession();
+
+        ScreenModel restored = ScreenModelCodec.decode(ScreenModelCodec.encode(session));
+
+        Array<ImageFragmentModel> models = restored.getFragmentModels();
+        assertEquals(2, models.size);
+        assertArrayEquals(TRIANGLE, models.get(0).getVertices(), 0f);
+        assertArrayEquals(SQUARE, models.get(1).getVertices(), 0f);
+        assertArrayEquals(session.getFragmentModels().get(1).getTriangles(), models.get(1).getTriangles());
+        assertTrue(models.get(0).getImageTransformation().getTransformation().isIdt());
+        Affine2 expected = session.getFragmentModels().get(1).getImageTransformation().getTransformation();
+        Affine2 actual = models.get(1).getImageTransformation().getTransformation();
+        assertEquals(expected.m00, actual.m00, 0f);
+        assertEquals(expected.m01, actual.m01, 0f);
+        assertEquals(expected.m10, actual.m10, 0f);
+        assertEquals(expected.m11, actual.m11, 0f);
+        assertEquals(expected.m02, actual.m02, 1f / 256);
+        assertEquals(expected.m12, actual.m12, 1f / 256);
+    }
+
+    @Test
+    public void emptySessionRoundTrip() {
+        ScreenModel session = new ScreenModel();
+        session.setFragmentModels(new Array<ImageFragmentModel>());
+
+        assertEquals(0, ScreenModelCodec.decode(ScreenModelCodec.encode(session)).getFragmentModels().size);
+    }
+
+    @Test
+    public void fragmentRoundTrip() {
+        ImageFragmentModel model = createSession().getFragmentModels().get(1);
+
+        ImageFragmentModel restored = ScreenModelCodec.decodeFragment(ScreenModelCodec.encodeFragment(model));
+
+        assertArrayEquals(SQUARE, restored.getVertices(), 0f);
+        assertArrayEquals(model.getTriangles(), restored.getTriangles());
+    }
+
+    @Test
+    public void decodesLegacyJson() {
+        String json = "{fragmentModels:[{vertices:[0,0,100,0,0,50],imageTransformation:{"
+                + "initialTransformation:{val:[1,0,0,0,0,1,0,0,0,0,1,0,0,0,0,1]},"
+                + "transformation:{val:[2,0,0,0,0,2,0,0,0,0,1,0,5,7,0,1]},"
+                + "invTransformation:{val:[1,0,0,0,0,1,0,0,0,0,1,0,0,0,0,1]},dirty:false}}]}";
+
+        ScreenModel session = ScreenModelCodec.decode(json.getBytes(UTF_8));
+
+        ImageFragmentModel model = session.getFragmentModels().get(0);
+        assertArrayEquals(TRIANGLE, model.getVertices(), 0f);
+        assertEquals(3, model.getTriangles().length);
+        Affine2 transformation = model.getImageTransformation().getTransformation();
+        assertEquals(2f, transformation.m00, 0f);
+        assertEquals(2f, transformation.m11, 0f);
+        assertEquals(5f, transformation.m02, 0f);
+        assertEquals(7f, transformation.m12, 0f);
+    }
+
+    @Test
+    public void decodesJsonWithoutFragments() {
+        assertEquals(0, ScreenModelCodec.decode("{}".getBytes(UTF_8)).getFragmentModels().size);
+    }
+
+    @Test
+    public void rejectsNewerFormatVersion() {
+        byte[] data = ScreenModelCodec.encode(createSession());
+        ByteBuffer.wrap(data).putInt(4, Integer.MAX_VALUE);
+
+        assertRejected(data);
+    }
+
+    @Test
+    public void rejectsFragmentCountLargerThanData() {
+        byte[] data = ScreenModelCodec.encode(createSession());
+        ByteBuffer.wrap(data).putInt(8, data.length);
+
+        assertRejected(data);
+    }
+
+    @Test
+    public void rejectsTruncatedData() {
+        byte[] data = ScreenModelCodec.encode(createSession());
+        for (int length = 12; length < data.length; ++length) {
+            assertRejected(Arrays.copyOf(data, length));
+        }
+    }
+
+    @Test
+    public void rejectsTruncatedFragment() {
+        byte[] data = ScreenModelCodec.encodeFragment(createSession().getFragmentModels().get(1));
+        for (int length = 0; length < data.length; ++length) {
+            try {
+                ScreenModelCodec.decodeFragment(Arrays.copyOf(data, length));
+                fail("Accepted fragment truncated to " + length + " bytes");
+            } catch (IllegalArgumentException expected) {
+            }
+        }
+    }
+
+    private static void assertRejected(byte[] data) {
+        try {
+            ScreenModelCodec.decode(data);
+            fail("Accepted corrupted data of " + data.length + " bytes");
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    private static ScreenModel createSession() {
+        Array<ImageFragmentModel> models = new Array<>();
+        models.add(new ImageFragmentModel(TRIANGLE.clone()));
+        ImageFragmentModel square = new ImageFragmentModel(SQUARE.clone());
+        square.getTriangles();
+        square.getImageTransformation().applyTransformationRelative(
+                new Matrix3().setToTranslation(12.3f, -4.5f).rotate(30f).scale(1.5f, 0.5f));
+        models.add(square);
+        ScreenModel session = new ScreenModel();
+        session.setFragmentModels(models);
+        return session;
+    }
+}
@@ -13,16 +13,17 @@ import timber.log.Timber;
 // THIS CODE IS GENERATED BY greenDAO, DO NOT EDIT.
 
 /**
- * Master of DAO (schema version 1001): knows all DAOs.
+ * Master of DAO (schema version 1002): knows all DAOs.
  */
 public class DaoMaster extends AbstractDaoMaster {
-    public static final int SCHEMA_VERSION = 1001;
+    public static final int SCHEMA_VERSION = 1002;
 
     /**
      * Creates underlying database table using DAOs.
      */
     public static void createAllTables(SQLiteDatabase db, boolean ifNotExists) {
         OpenedImageDao.createTable(db, ifNotExists);
+        SessionFragmentDao.createTable(db, ifNotExists);
     }
 
     /**
@@ -30,6 +31,7 @@ public class DaoMaster extends AbstractDaoMaster {
      */
     public static void dropAllTables(SQLiteDatabase db, boolean ifExists) {
         OpenedImageDao.dropTable(db, ifExists);
+        SessionFragmentDao.dropTable(db, ifExists);
     }
 
     public static abstract class OpenHelper extends SQLiteOpenHelper {
@@ -68,6 +70,7 @@ public class DaoMaster extends AbstractDaoMaster {
     public DaoMaster(SQLiteDatabase db) {
         super(db, SCHEMA_VERSION);
         registerDaoClass(OpenedImageDao.class);
+        registerDaoClass(SessionFragmentDao.class);
     }
 
     public DaoSession newSession() {
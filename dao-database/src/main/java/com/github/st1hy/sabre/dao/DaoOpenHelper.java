@@ -5,9 +5,12 @@ import android.database.sqlite.SQLiteDatabase;
 
 import com.github.st1hy.sabre.dao.migration.MigrationHelper;
 import com.github.st1hy.sabre.dao.migration.MigrationHelper1001;
+import com.github.st1hy.sabre.dao.migration.MigrationHelper1002;
 import com.google.common.collect.HashBasedTable;
 import com.google.common.collect.Table;
 
+import java.util.Map;
+
 import timber.log.Timber;
 
 /**
@@ -39,21 +42,30 @@ public class DaoOpenHelper extends DaoMaster.OpenHelper {
     }
 
     /**
+     * Applies migrations one after another, each starting at version the previous one ended with.
+     *
      * @return true if database was successfully upgraded.
      */
     private boolean upgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
-        MigrationHelper migrationHelper = getMigrationPolicy(context).get(oldVersion, newVersion);
-        if (migrationHelper != null) {
-            return migrationHelper.onUpgrade(db, oldVersion, newVersion);
-        } else {
-            Timber.w("No database migration from %d to %d available!", oldVersion, newVersion);
-            return false;
+        Table<Integer, Integer, MigrationHelper> migrationPolicy = getMigrationPolicy(context);
+        int version = oldVersion;
+        while (version < newVersion) {
+            Map<Integer, MigrationHelper> migrations = migrationPolicy.row(version);
+            if (migrations.isEmpty()) {
+                Timber.w("No database migration from %d to %d available!", version, newVersion);
+                return false;
+            }
+            Map.Entry<Integer, MigrationHelper> migration = migrations.entrySet().iterator().next();
+            if (!migration.getValue().onUpgrade(db, version, migration.getKey())) return false;
+            version = migration.getKey();
         }
+        return version == newVersion;
     }
 
     private static Table<Integer, Integer, MigrationHelper> getMigrationPolicy(Context context) {
         Table<Integer, Integer, MigrationHelper> migrationHelperTable = HashBasedTable.create();
         migrationHelperTable.put(MigrationHelper1001.FROM, MigrationHelper1001.TO, new MigrationHelper1001(context));
+        migrationHelperTable.put(MigrationHelper1002.FROM, MigrationHelper1002.TO, new MigrationHelper1002());
 
         return migrationHelperTable;
     }
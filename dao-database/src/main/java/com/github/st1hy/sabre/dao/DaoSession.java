@@ -19,8 +19,10 @@ import de.greenrobot.dao.internal.DaoConfig;
 public class DaoSession extends AbstractDaoSession {
 
     private final DaoConfig openedImageDaoConfig;
+    private final DaoConfig sessionFragmentDaoConfig;
 
     private final OpenedImageDao openedImageDao;
+    private final SessionFragmentDao sessionFragmentDao;
 
     public DaoSession(SQLiteDatabase db, IdentityScopeType type, Map<Class<? extends AbstractDao<?, ?>>, DaoConfig>
             daoConfigMap) {
@@ -29,17 +31,27 @@ public class DaoSession extends AbstractDaoSession {
         openedImageDaoConfig = daoConfigMap.get(OpenedImageDao.class).clone();
         openedImageDaoConfig.initIdentityScope(type);
 
+        sessionFragmentDaoConfig = daoConfigMap.get(SessionFragmentDao.class).clone();
+        sessionFragmentDaoConfig.initIdentityScope(type);
+
         openedImageDao = new OpenedImageDao(openedImageDaoConfig, this);
+        sessionFragmentDao = new SessionFragmentDao(sessionFragmentDaoConfig, this);
 
         registerDao(OpenedImage.class, openedImageDao);
+        registerDao(SessionFragment.class, sessionFragmentDao);
     }
 
     public void clear() {
         openedImageDaoConfig.getIdentityScope().clear();
+        sessionFragmentDaoConfig.getIdentityScope().clear();
     }
 
     public OpenedImageDao getOpenedImageDao() {
         return openedImageDao;
     }
 
+    public SessionFragmentDao getSessionFragmentDao() {
+        return sessionFragmentDao;
+    }
+
 }
@@ -32,6 +32,7 @@ public enum OpenImageUtils {
         OpenedImageDao dao = session.getOpenedImageDao();
         OpenedImage image = getImage(dao, uri);
         if (image != null) {
+            SessionFragmentUtils.deleteFragments(session.getSessionFragmentDao(), image.getId());
             dao.delete(image);
             notifyContentChanged(context);
         }
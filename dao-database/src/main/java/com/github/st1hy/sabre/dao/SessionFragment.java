@@ -0,0 +1,70 @@
+package com.github.st1hy.sabre.dao;
+
+// THIS CODE IS GENERATED BY greenDAO, DO NOT EDIT. Enable "keep" sections if you want to edit. 
+
+/**
+ * Entity mapped to table "SESSION_FRAGMENT".
+ */
+public class SessionFragment {
+
+    private Long id;
+    private long imageId;
+    private int position;
+    /**
+     * Not-null value.
+     */
+    private byte[] data;
+
+    public SessionFragment() {
+    }
+
+    public SessionFragment(Long id) {
+        this.id = id;
+    }
+
+    public SessionFragment(Long id, long imageId, int position, byte[] data) {
+        this.id = id;
+        this.imageId = imageId;
+        this.position = position;
+        this.data = data;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public long getImageId() {
+        return imageId;
+    }
+
+    public void setImageId(long imageId) {
+        this.imageId = imageId;
+    }
+
+    public int getPosition() {
+        return position;
+    }
+
+    public void setPosition(int position) {
+        this.position = position;
+    }
+
+    /**
+     * Not-null value.
+     */
+    public byte[] getData() {
+        return data;
+    }
+
+    /**
+     * Not-null value; ensure this value is available before it is saved to the database.
+     */
+    public void setData(byte[] data) {
+        this.data = data;
+    }
+
+}
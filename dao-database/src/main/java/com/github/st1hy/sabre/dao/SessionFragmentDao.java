@@ -0,0 +1,143 @@
+package com.github.st1hy.sabre.dao;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+
+import de.greenrobot.dao.AbstractDao;
+import de.greenrobot.dao.Property;
+import de.greenrobot.dao.internal.DaoConfig;
+
+// THIS CODE IS GENERATED BY greenDAO, DO NOT EDIT.
+
+/**
+ * DAO for table "SESSION_FRAGMENT".
+ */
+public class SessionFragmentDao extends AbstractDao<SessionFragment, Long> {
+
+    public static final String TABLENAME = "SESSION_FRAGMENT";
+
+    /**
+     * Properties of entity SessionFragment.<br/>
+     * Can be used for QueryBuilder and for referencing column names.
+     */
+    public static class Properties {
+        public final static Property Id = new Property(0, Long.class, "id", true, "_id");
+        public final static Property ImageId = new Property(1, long.class, "imageId", false, "IMAGE_ID");
+        public final static Property Position = new Property(2, int.class, "position", false, "POSITION");
+        public final static Property Data = new Property(3, byte[].class, "data", false, "DATA");
+    }
+
+    ;
+
+
+    public SessionFragmentDao(DaoConfig config) {
+        super(config);
+    }
+
+    public SessionFragmentDao(DaoConfig config, DaoSession daoSession) {
+        super(config, daoSession);
+    }
+
+    /**
+     * Creates the underlying database table.
+     */
+    public static void createTable(SQLiteDatabase db, boolean ifNotExists) {
+        String constraint = ifNotExists ? "IF NOT EXISTS " : "";
+        db.execSQL("CREATE TABLE " + constraint + "\"SESSION_FRAGMENT\" (" + //
+                "\"_id\" INTEGER PRIMARY KEY AUTOINCREMENT ," + // 0: id
+                "\"IMAGE_ID\" INTEGER NOT NULL ," + // 1: imageId
+                "\"POSITION\" INTEGER NOT NULL ," + // 2: position
+                "\"DATA\" BLOB NOT NULL );"); // 3: data
+        // Add Indexes
+        db.execSQL("CREATE INDEX " + constraint + "IDX_SESSION_FRAGMENT_IMAGE_ID ON SESSION_FRAGMENT" +
+                " (\"IMAGE_ID\");");
+    }
+
+    /**
+     * Drops the underlying database table.
+     */
+    public static void dropTable(SQLiteDatabase db, boolean ifExists) {
+        String sql = "DROP TABLE " + (ifExists ? "IF EXISTS " : "") + "\"SESSION_FRAGMENT\"";
+        db.execSQL(sql);
+    }
+
+    /**
+     * @inheritdoc
+     */
+    @Override
+    protected void bindValues(SQLiteStatement stmt, SessionFragment entity) {
+        stmt.clearBindings();
+
+        Long id = entity.getId();
+        if (id != null) {
+            stmt.bindLong(1, id);
+        }
+        stmt.bindLong(2, entity.getImageId());
+        stmt.bindLong(3, entity.getPosition());
+        stmt.bindBlob(4, entity.getData());
+    }
+
+    /**
+     * @inheritdoc
+     */
+    @Override
+    public Long readKey(Cursor cursor, int offset) {
+        return cursor.isNull(offset + 0) ? null : cursor.getLong(offset + 0);
+    }
+
+    /**
+     * @inheritdoc
+     */
+    @Override
+    public SessionFragment readEntity(Cursor cursor, int offset) {
+        SessionFragment entity = new SessionFragment( //
+                cursor.isNull(offset + 0) ? null : cursor.getLong(offset + 0), // id
+                cursor.getLong(offset + 1), // imageId
+                cursor.getInt(offset + 2), // position
+                cursor.getBlob(offset + 3) // data
+        );
+        return entity;
+    }
+
+    /**
+     * @inheritdoc
+     */
+    @Override
+    public void readEntity(Cursor cursor, SessionFragment entity, int offset) {
+        entity.setId(cursor.isNull(offset + 0) ? null : cursor.getLong(offset + 0));
+        entity.setImageId(cursor.getLong(offset + 1));
+        entity.setPosition(cursor.getInt(offset + 2));
+        entity.setData(cursor.getBlob(offset + 3));
+    }
+
+    /**
+     * @inheritdoc
+     */
+    @Override
+    protected Long updateKeyAfterInsert(SessionFragment entity, long rowId) {
+        entity.setId(rowId);
+        return rowId;
+    }
+
+    /**
+     * @inheritdoc
+     */
+    @Override
+    public Long getKey(SessionFragment entity) {
+        if (entity != null) {
+            return entity.getId();
+        } else {
+            return null;
+        }
+    }
+
+    /**
+     * @inheritdoc
+     */
+    @Override
+    protected boolean isEntityUpdateable() {
+        return true;
+    }
+
+}
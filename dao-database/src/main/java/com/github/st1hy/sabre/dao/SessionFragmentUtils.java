@@ -0,0 +1,39 @@
+package com.github.st1hy.sabre.dao;
+
+import android.support.annotation.NonNull;
+
+import java.util.List;
+
+public enum SessionFragmentUtils {
+    ;
+
+    /**
+     * @return fragments of editing session of the image in drawing order
+     */
+    @NonNull
+    public static List<SessionFragment> getFragments(@NonNull SessionFragmentDao dao, long imageId) {
+        return dao.queryBuilder()
+                .where(SessionFragmentDao.Properties.ImageId.eq(imageId))
+                .orderAsc(SessionFragmentDao.Properties.Position)
+                .build().list();
+    }
+
+    /**
+     * Changes drawing order of the fragment without writing its data again. Entities of the dao are detached,
+     * so fragments loaded later read the new position.
+     */
+    public static void updatePosition(@NonNull SessionFragmentDao dao, long id, int position) {
+        dao.getDatabase().execSQL("UPDATE " + SessionFragmentDao.TABLENAME
+                        + " SET " + SessionFragmentDao.Properties.Position.columnName + "=?"
+                        + " WHERE " + SessionFragmentDao.Properties.Id.columnName + "=?",
+                new Object[]{position, id});
+        dao.detachAll();
+    }
+
+    public static void deleteFragments(@NonNull SessionFragmentDao dao, long imageId) {
+        dao.queryBuilder()
+                .where(SessionFragmentDao.Properties.ImageId.eq(imageId))
+                .buildDelete().executeDeleteWithoutDetachingEntities();
+        dao.detachAll();
+    }
+}
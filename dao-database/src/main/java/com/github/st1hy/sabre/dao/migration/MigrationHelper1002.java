@@ -0,0 +1,41 @@
+package com.github.st1hy.sabre.dao.migration;
+
+import android.database.SQLException;
+import android.database.sqlite.SQLiteDatabase;
+
+import timber.log.Timber;
+
+/**
+ * Performs database update from scheme version 1001 to scheme 1002: adds table of editing session fragments.
+ */
+public class MigrationHelper1002 implements MigrationHelper {
+    public static final int FROM = 1001, TO = 1002;
+
+    @Override
+    public boolean onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        Timber.i("Upgrading images database from 1001 to 1002");
+        db.beginTransaction();
+        try {
+            createTable1002(db);
+            db.setTransactionSuccessful();
+            Timber.i("Upgrading images database from 1001 to 1002 successful!");
+            return true;
+        } catch (SQLException e) {
+            Timber.e(e, "Upgrading images database failed!");
+        } finally {
+            db.endTransaction();
+        }
+        return false;
+    }
+
+    private void createTable1002(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE " + "\"SESSION_FRAGMENT\" (" + //
+                "\"_id\" INTEGER PRIMARY KEY AUTOINCREMENT ," + // 0: id
+                "\"IMAGE_ID\" INTEGER NOT NULL ," + // 1: imageId
+                "\"POSITION\" INTEGER NOT NULL ," + // 2: position
+                "\"DATA\" BLOB NOT NULL );"); // 3: data
+        // Add Indexes
+        db.execSQL("CREATE INDEX " + "IDX_SESSION_FRAGMENT_IMAGE_ID ON SESSION_FRAGMENT" +
+                " (\"IMAGE_ID\");");
+    }
+}
@@ -8,8 +8,9 @@ import de.greenrobot.daogenerator.Schema;
 public class SabreDaoGenerator {
 
     public static void main(String[] args) throws Exception {
-        Schema schema = new Schema(1001, "com.github.st1hy.sabre.dao");
+        Schema schema = new Schema(1002, "com.github.st1hy.sabre.dao");
         addOpenedImage(schema);
+        addSessionFragment(schema);
 
         new DaoGenerator().generateAll(schema, "dao-database/src/main/java");
     }
@@ -25,4 +26,15 @@ public class SabreDaoGenerator {
         ContentProvider contentProvider = openedImage.addContentProvider();
         contentProvider.setBasePath("imageHistory");
     }
+
+    /**
+     * Single fragment of editing session of an opened image, one row per fragment so sessions are saved incrementally.
+     */
+    private static void addSessionFragment(Schema schema) {
+        Entity sessionFragment = schema.addEntity("SessionFragment");
+        sessionFragment.addIdProperty().autoincrement();
+        sessionFragment.addLongProperty("imageId").notNull().index();
+        sessionFragment.addIntProperty("position").notNull();
+        sessionFragment.addByteArrayProperty("data").notNull();
+    }
 }